@@ -23,8 +23,18 @@ dependencies {
         exclude(group = "org.apache.maven")
     }
     implementation("org.apache.commons:commons-collections4:4.5.0")
+    // the javac plugin API, which is only part of the class library from Java 9 on
+    compileOnly(
+        files(
+            javaToolchains
+                .compilerFor { languageVersion = JavaLanguageVersion.of(8) }
+                .map { it.metadata.installationPath.file("lib/tools.jar") },
+        ),
+    )
 
     testImplementation("com.fasterxml.jackson.core:jackson-databind:2.20.1")
+    // the tests generate class files, the plugin itself reads them without ASM
+    testImplementation("org.ow2.asm:asm:9.8")
     testImplementation("org.assertj:assertj-core:3.27.7")
     testImplementation(platform("org.junit:junit-bom:5.13.4"))
     testImplementation("org.junit.jupiter:junit-jupiter")
@@ -1,5 +1,6 @@
 package ca.cutterslade.gradle.analyze;
 
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
 import ca.cutterslade.gradle.analyze.util.ConfigurationSetupUtils;
 import ca.cutterslade.gradle.analyze.util.GradleVersionUtil;
 import java.util.ArrayList;
@@ -7,26 +8,55 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
+import org.gradle.api.Action;
+import org.gradle.api.JavaVersion;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.attributes.Usage;
+import org.gradle.api.file.Directory;
+import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.util.GradleVersion;
 
 public class AnalyzeDependenciesPlugin implements Plugin<Project> {
+  static final String ARTIFACT_CLASS_CACHE_LIMIT_PROPERTY =
+      "ca.cutterslade.analyze.artifactClassCacheLimit";
+  static final String RECORD_JAVAC_REFERENCES_PROPERTY =
+      "ca.cutterslade.analyze.recordJavacReferences";
+  static final String ANALYZE_SOURCE_SETS_TOGETHER_PROPERTY =
+      "ca.cutterslade.analyze.analyzeSourceSetsTogether";
 
   @Override
   public void apply(final Project project) {
-    if (project.getRootProject() == project) {
+    if (GradleVersionUtil.isBuildServiceSupported(GradleVersion.current())) {
+      ArtifactClassCacheService.registerFor(project);
+    } else {
+      final ArtifactClassCache cache = rootProjectArtifactClassCache(project);
       project
-          .getRootProject()
-          .getExtensions()
-          .add(ProjectDependencyResolver.CACHE_NAME, new HashSetValuedHashMap<>());
+          .getTasks()
+          .withType(AnalyzeDependenciesTask.class)
+          .configureEach(task -> task.setArtifactClassCache(project.provider(() -> cache)));
+      project
+          .getTasks()
+          .withType(AnalyzeSourceSetsDependenciesTask.class)
+          .configureEach(task -> task.setArtifactClassCache(project.provider(() -> cache)));
+      project
+          .getTasks()
+          .withType(AnalyzeDependencyChangeTask.class)
+          .configureEach(task -> task.setArtifactClassCache(project.provider(() -> cache)));
+      project
+          .getTasks()
+          .withType(ExtractClassReferencesTask.class)
+          .configureEach(task -> task.setArtifactClassCache(project.provider(() -> cache)));
+    }
+    if (GradleVersionUtil.isArtifactTransformSupported(GradleVersion.current())) {
+      ArtifactClassListTransform.register(project.getDependencies());
     }
 
     project
@@ -52,6 +82,41 @@ public class AnalyzeDependenciesPlugin implements Plugin<Project> {
                         task.dependsOn(commonTask);
                       });
 
+              final TaskProvider<AnalyzeSourceSetsDependenciesTask> sourceSetsTask =
+                  analyzeSourceSetsTogether(project)
+                      ? project
+                          .getTasks()
+                          .register(
+                              "analyzeSourceSetsDependencies",
+                              AnalyzeSourceSetsDependenciesTask.class,
+                              task -> {
+                                task.setGroup("Verification");
+                                task.setDescription(
+                                    "Analyze all source sets of the project for dependency"
+                                        + " issues.");
+                                // the analyze tasks of the source sets do not run
+                                task.doFirst(providedRuntimeWarning(project));
+                              })
+                      : null;
+              if (sourceSetsTask != null) {
+                commonTask.configure(task -> task.dependsOn(sourceSetsTask));
+              }
+
+              final TaskProvider<AnalyzeDependencyChangeTask> changeTask =
+                  project
+                      .getTasks()
+                      .register(
+                          "analyzeDependencyChange",
+                          AnalyzeDependencyChangeTask.class,
+                          task -> {
+                            task.project(
+                                project.getPath(), project.getGradle().getGradleUserHomeDir());
+                            task.setGroup("Help");
+                            task.setDescription(
+                                "Reports how replacing a module would change the dependency"
+                                    + " analysis, without running the analyze tasks.");
+                          });
+
               // Create a map to store all analyze tasks by source set
               final Map<String, Object> analyzeTasksBySourceSet = new HashMap<>();
 
@@ -220,128 +285,258 @@ public class AnalyzeDependenciesPlugin implements Plugin<Project> {
                                   // Always depend on jar
                                   task.dependsOn(project.getTasks().named("jar"));
 
-                                  // Use anonymous inner class instead of lambda for task action
-                                  task.doFirst(
-                                      new org.gradle.api.Action<Task>() {
-                                        @Override
-                                        public void execute(final Task t) {
-                                          if (project
-                                              .getConfigurations()
-                                              .getNames()
-                                              .contains("providedRuntime")) {
-                                            final Provider<Configuration> providedRuntimeConfig =
-                                                project
-                                                    .getConfigurations()
-                                                    .named("providedRuntime");
-                                            // We need to get() here because we're checking
-                                            // properties inside doFirst action
-                                            if (!providedRuntimeConfig
-                                                .get()
-                                                .getResolvedConfiguration()
-                                                .getFirstLevelModuleDependencies()
-                                                .isEmpty()) {
-                                              GradleVersionUtil
-                                                  .warnAboutWarPluginBrokenWhenUsingProvidedRuntime(
-                                                      GradleVersion.current(), project.getLogger());
-                                            }
-                                          }
-                                        }
-                                      });
+                                  task.doFirst(providedRuntimeWarning(project));
+                                });
+
+                    final TaskProvider<ExtractClassReferencesTask> extractTask =
+                        project
+                            .getTasks()
+                            .register(
+                                sourceSet.getTaskName("extract", "classReferences"),
+                                ExtractClassReferencesTask.class,
+                                task -> {
+                                  task.setDescription(
+                                      "Extract the classes referenced by the "
+                                          + sourceSet.getName()
+                                          + " source set for the dependency analysis.");
+                                  task.setClassesDirs(sourceSet.getOutput().getClassesDirs());
+                                  task.getReferencesFile()
+                                      .set(
+                                          project
+                                              .getLayout()
+                                              .getBuildDirectory()
+                                              .file(
+                                                  "dependency-analyze/" + task.getName() + ".txt"));
+                                  // parsing the class files is configured on the analyze task,
+                                  // whose properties carry no dependency on the analyze task
+                                  task.getAnalyzeClassesInParallel()
+                                      .set(
+                                          analyzeTask.flatMap(
+                                              AnalyzeDependenciesTask
+                                                  ::getAnalyzeClassesInParallel));
+                                  task.getAnalyzeClassesWithConstantPoolScanner()
+                                      .set(
+                                          analyzeTask.flatMap(
+                                              AnalyzeDependenciesTask
+                                                  ::getAnalyzeClassesWithConstantPoolScanner));
+                                  task.getExcludePlatformClasses()
+                                      .set(
+                                          analyzeTask.flatMap(
+                                              AnalyzeDependenciesTask::getExcludePlatformClasses));
+                                  if (GradleVersionUtil.isToolchainSupported(
+                                      GradleVersion.current())) {
+                                    task.getPlatformJavaHome()
+                                        .set(compilerJavaHome(project, sourceSet));
+                                    task.getPlatformJavaVersion()
+                                        .set(compilerJavaVersion(project, sourceSet));
+                                  }
                                 });
 
+                    if (recordJavacReferences(project)) {
+                      JavacReferenceRecording.configure(project, sourceSet, extractTask);
+                    }
+
                     // Store the task in our map
                     analyzeTasksBySourceSet.put(sourceSet.getName(), analyzeTask);
 
-                    commonTask.configure(
-                        task -> {
-                          task.dependsOn(analyzeTask);
-                        });
+                    if (sourceSetsTask == null) {
+                      commonTask.configure(
+                          task -> {
+                            task.dependsOn(analyzeTask);
+                          });
+                    }
 
                     project.afterEvaluate(
                         p -> {
-                          analyzeTask.configure(
-                              task -> {
-                                // Create a list with a single provider
-                                final List<Provider<Configuration>> requireList = new ArrayList<>();
-                                requireList.add(
-                                    project
-                                        .getConfigurations()
-                                        .named(sourceSet.getCompileClasspathConfigurationName()));
-                                task.setRequire(requireList);
-
-                                // Set up the providers for helper configs
-                                task.setCompileOnly(
-                                    ConfigurationSetupUtils.wrapInList(
-                                        project
-                                            .getConfigurations()
-                                            .named(
-                                                sourceSet.getTaskName("compileOnlyHelper", ""))));
-
-                                task.setApiHelperConfiguration(
-                                    ConfigurationSetupUtils.wrapInList(
-                                        project
-                                            .getConfigurations()
-                                            .named(sourceSet.getTaskName("apiHelper", ""))));
-
-                                // List of allowed aggregators to use
-                                task.setAllowedAggregatorsToUse(
-                                    ConfigurationSetupUtils.wrapInList(
-                                        project
-                                            .getConfigurations()
-                                            .named(
-                                                sourceSet.getTaskName("permit", "aggregatorUse"))));
-
-                                // List of allowed to use
-                                final List<Provider<Configuration>> allowedToUseList =
-                                    new ArrayList<>();
-                                allowedToUseList.add(
-                                    project
-                                        .getConfigurations()
-                                        .named(sourceSet.getTaskName("permit", "usedUndeclared")));
-
-                                // List of allowed to declare
-                                final List<Provider<Configuration>> allowedToDeclareList =
-                                    new ArrayList<>();
-                                allowedToDeclareList.add(
-                                    project
-                                        .getConfigurations()
-                                        .named(sourceSet.getTaskName("permit", "unusedDeclared")));
-
-                                if (sourceSet.getName().equals("test")) {
-                                  allowedToUseList.add(
-                                      project.getConfigurations().named("compileClasspath"));
-                                  if (project
+                          // Create a list with a single provider
+                          final List<Provider<Configuration>> requireList = new ArrayList<>();
+                          requireList.add(
+                              project
+                                  .getConfigurations()
+                                  .named(sourceSet.getCompileClasspathConfigurationName()));
+
+                          // List of allowed to use
+                          final List<Provider<Configuration>> allowedToUseList = new ArrayList<>();
+                          allowedToUseList.add(
+                              project
+                                  .getConfigurations()
+                                  .named(sourceSet.getTaskName("permit", "usedUndeclared")));
+
+                          // List of allowed to declare
+                          final List<Provider<Configuration>> allowedToDeclareList =
+                              new ArrayList<>();
+                          allowedToDeclareList.add(
+                              project
+                                  .getConfigurations()
+                                  .named(sourceSet.getTaskName("permit", "unusedDeclared")));
+
+                          if (sourceSet.getName().equals("test")) {
+                            allowedToUseList.add(
+                                project.getConfigurations().named("compileClasspath"));
+                            if (project
+                                .getConfigurations()
+                                .getNames()
+                                .contains("testFixturesCompileClasspath")) {
+                              allowedToUseList.add(
+                                  project
                                       .getConfigurations()
-                                      .getNames()
-                                      .contains("testFixturesCompileClasspath")) {
-                                    allowedToUseList.add(
-                                        project
-                                            .getConfigurations()
-                                            .named("testFixturesCompileClasspath"));
-                                  }
-
-                                  // Test depends on main analyze task
-                                  if (analyzeTasksBySourceSet.containsKey("main")) {
-                                    task.dependsOn(analyzeTasksBySourceSet.get("main"));
-                                  }
-                                }
+                                      .named("testFixturesCompileClasspath"));
+                            }
+                          }
+
+                          if (sourceSet.getName().equals("testFixtures")) {
+                            allowedToUseList.add(
+                                project.getConfigurations().named("testCompileClasspath"));
+                          }
+
+                          final SourceSetConfigurations configurations =
+                              new SourceSetConfigurations(
+                                  requireList,
+                                  // Set up the providers for helper configs
+                                  ConfigurationSetupUtils.wrapInList(
+                                      project
+                                          .getConfigurations()
+                                          .named(sourceSet.getTaskName("compileOnlyHelper", ""))),
+                                  ConfigurationSetupUtils.wrapInList(
+                                      project
+                                          .getConfigurations()
+                                          .named(sourceSet.getTaskName("apiHelper", ""))),
+                                  allowedToUseList,
+                                  allowedToDeclareList,
+                                  // List of allowed aggregators to use
+                                  ConfigurationSetupUtils.wrapInList(
+                                      project
+                                          .getConfigurations()
+                                          .named(sourceSet.getTaskName("permit", "aggregatorUse"))),
+                                  extractTask.flatMap(
+                                      ExtractClassReferencesTask::getReferencesFile));
 
-                                if (sourceSet.getName().equals("testFixtures")) {
-                                  allowedToUseList.add(
-                                      project.getConfigurations().named("testCompileClasspath"));
+                          analyzeTask.configure(
+                              task -> {
+                                configurations.configure(task);
 
-                                  // TestFixtures depends on main analyze task
-                                  if (analyzeTasksBySourceSet.containsKey("main")) {
-                                    task.dependsOn(analyzeTasksBySourceSet.get("main"));
-                                  }
+                                // Test and TestFixtures depend on main analyze task
+                                if ((sourceSet.getName().equals("test")
+                                        || sourceSet.getName().equals("testFixtures"))
+                                    && analyzeTasksBySourceSet.containsKey("main")) {
+                                  task.dependsOn(analyzeTasksBySourceSet.get("main"));
                                 }
-
-                                task.setAllowedToUse(allowedToUseList);
-                                task.setAllowedToDeclare(allowedToDeclareList);
-                                task.setClassesDirs(sourceSet.getOutput().getClassesDirs());
                               });
+
+                          changeTask.configure(
+                              task -> task.analyze(sourceSet.getName(), configurations));
+                          if (sourceSetsTask != null) {
+                            sourceSetsTask.configure(
+                                task ->
+                                    task.analyze(sourceSet.getName(), configurations, analyzeTask));
+                          }
                         });
                   });
             });
   }
+
+  /**
+   * Returns the action warning about the broken war plugin when the providedRuntime configuration
+   * has dependencies, added to every task analyzing the source sets of the project.
+   */
+  private static Action<Task> providedRuntimeWarning(final Project project) {
+    // Use anonymous inner class instead of lambda for task action
+    return new Action<Task>() {
+      @Override
+      public void execute(final Task t) {
+        if (project.getConfigurations().getNames().contains("providedRuntime")) {
+          final Provider<Configuration> providedRuntimeConfig =
+              project.getConfigurations().named("providedRuntime");
+          // We need to get() here because we're checking
+          // properties inside doFirst action
+          if (!providedRuntimeConfig
+              .get()
+              .getResolvedConfiguration()
+              .getFirstLevelModuleDependencies()
+              .isEmpty()) {
+            GradleVersionUtil.warnAboutWarPluginBrokenWhenUsingProvidedRuntime(
+                GradleVersion.current(), project.getLogger());
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Gradle versions without build services share the artifact class cache through an extension of
+   * the root project, created by whichever project applies the plugin first.
+   */
+  private static ArtifactClassCache rootProjectArtifactClassCache(final Project project) {
+    final ExtensionContainer extensions = project.getRootProject().getExtensions();
+    final Object cache = extensions.findByName(ProjectDependencyResolver.CACHE_NAME);
+    if (cache != null) {
+      return (ArtifactClassCache) cache;
+    }
+    final ArtifactClassCache created = new ArtifactClassCache(artifactClassCacheLimit(project));
+    extensions.add(ProjectDependencyResolver.CACHE_NAME, created);
+    return created;
+  }
+
+  /**
+   * The installation of the toolchain compiling the Java sources of a source set, or of the JVM
+   * running Gradle if the compilation has no toolchain.
+   */
+  private static Provider<Directory> compilerJavaHome(
+      final Project project, final SourceSet sourceSet) {
+    return project
+        .getTasks()
+        .named(sourceSet.getCompileJavaTaskName(), JavaCompile.class)
+        .flatMap(JavaCompile::getJavaCompiler)
+        .map(compiler -> compiler.getMetadata().getInstallationPath())
+        .orElse(project.getLayout().getProjectDirectory().dir(System.getProperty("java.home")));
+  }
+
+  /**
+   * The language version of the toolchain compiling the Java sources of a source set, or of the JVM
+   * running Gradle if the compilation has no toolchain.
+   */
+  private static Provider<String> compilerJavaVersion(
+      final Project project, final SourceSet sourceSet) {
+    return project
+        .getTasks()
+        .named(sourceSet.getCompileJavaTaskName(), JavaCompile.class)
+        .flatMap(JavaCompile::getJavaCompiler)
+        .map(compiler -> compiler.getMetadata().getLanguageVersion().toString())
+        .orElse(JavaVersion.current().getMajorVersion());
+  }
+
+  /**
+   * Reads from the Gradle properties whether the Java compilations record the classes they
+   * reference for the analysis.
+   */
+  static boolean recordJavacReferences(final Project project) {
+    final Object record = project.findProperty(RECORD_JAVAC_REFERENCES_PROPERTY);
+    return record != null && Boolean.parseBoolean(record.toString().trim());
+  }
+
+  /**
+   * Reads from the Gradle properties whether all source sets of a project are analyzed by a single
+   * task.
+   */
+  static boolean analyzeSourceSetsTogether(final Project project) {
+    final Object together = project.findProperty(ANALYZE_SOURCE_SETS_TOGETHER_PROPERTY);
+    return together != null && Boolean.parseBoolean(together.toString().trim());
+  }
+
+  /**
+   * Reads the maximum number of class names held by the artifact class cache from the Gradle
+   * properties.
+   */
+  static int artifactClassCacheLimit(final Project project) {
+    final Object limit = project.findProperty(ARTIFACT_CLASS_CACHE_LIMIT_PROPERTY);
+    if (limit == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(limit.toString().trim());
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "Property " + ARTIFACT_CLASS_CACHE_LIMIT_PROPERTY + " must be a number of classes", e);
+    }
+  }
 }
@@ -2,6 +2,9 @@ package ca.cutterslade.gradle.analyze;
 
 import static ca.cutterslade.gradle.analyze.util.ProjectDependencyAnalysisResultHandler.warnAndLogOrFail;
 
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassIndexStore;
+import ca.cutterslade.gradle.analyze.util.GradleVersionUtil;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -9,15 +12,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
-import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.UnknownDomainObjectException;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.file.*;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.*;
+import org.gradle.util.GradleVersion;
 
 @CacheableTask
 public class AnalyzeDependenciesTask extends DefaultTask {
@@ -26,6 +29,8 @@ public class AnalyzeDependenciesTask extends DefaultTask {
   private Boolean warnSuperfluous = false;
   private Boolean warnCompileOnly = false;
   private Boolean logDependencyInformationToFiles = false;
+  private Boolean indexArtifactsWithTransform = false;
+  private Boolean indexArtifactsInParallel = false;
   private List<Provider<Configuration>> require = new ArrayList<>();
   private List<Provider<Configuration>> compileOnly = new ArrayList<>();
   private List<Provider<Configuration>> apiHelperConfiguration = new ArrayList<>();
@@ -33,29 +38,30 @@ public class AnalyzeDependenciesTask extends DefaultTask {
   private List<Provider<Configuration>> allowedToDeclare = new ArrayList<>();
   private List<Provider<Configuration>> allowedAggregatorsToUse = new ArrayList<>();
   private final Logger logger;
-  private final HashSetValuedHashMap<File, String> artifactClassCache;
-  private final ConfigurableFileCollection classesDirs;
+  private Provider<ArtifactClassCache> artifactClassCache;
+  private final File gradleUserHomeDir;
+  private final int maxWorkerCount;
+  private final ConfigurableFileCollection classReferenceFiles;
   private final RegularFileProperty logFile;
+  private final Property<Boolean> analyzeClassesInParallel;
+  private final Property<Boolean> analyzeClassesWithConstantPoolScanner;
+  private final Property<Boolean> excludePlatformClasses;
 
   @Inject
-  @SuppressWarnings("unchecked")
   public AnalyzeDependenciesTask(
       final ProjectLayout projectLayout, final ObjectFactory objectFactory) {
-    this.classesDirs = objectFactory.fileCollection();
+    this.classReferenceFiles = objectFactory.fileCollection();
     this.logFile = objectFactory.fileProperty();
+    this.analyzeClassesInParallel = objectFactory.property(Boolean.class).convention(false);
+    this.analyzeClassesWithConstantPoolScanner =
+        objectFactory.property(Boolean.class).convention(false);
+    this.excludePlatformClasses = objectFactory.property(Boolean.class).convention(false);
 
     this.logger = getLogger();
-    try {
-      this.artifactClassCache =
-          (HashSetValuedHashMap<File, String>)
-              getProject()
-                  .getRootProject()
-                  .getExtensions()
-                  .getByName(ProjectDependencyResolver.CACHE_NAME);
-    } catch (final UnknownDomainObjectException e) {
-      throw new IllegalStateException(
-          "Dependency analysis plugin must also be applied to the root project", e);
-    }
+    this.gradleUserHomeDir = getProject().getGradle().getGradleUserHomeDir();
+    this.maxWorkerCount = getProject().getGradle().getStartParameter().getMaxWorkerCount();
+    // replaced by the shared cache of the build when the plugin is applied
+    this.artifactClassCache = getProject().provider(ArtifactClassCache::new);
     logFile.convention(
         projectLayout
             .getBuildDirectory()
@@ -69,6 +75,13 @@ public class AnalyzeDependenciesTask extends DefaultTask {
   @TaskAction
   public void action() throws IOException {
     final Path logFilePath = getLogFile().get().getAsFile().toPath();
+    report(
+        analyze(ArtifactClassIndexStore.inGradleUserHome(gradleUserHomeDir, logger), logFilePath),
+        logFilePath);
+  }
+
+  private ProjectDependencyAnalysisResult analyze(
+      final ArtifactClassIndexStore artifactClassIndexStore, final Path logFilePath) {
     if (logDependencyInformationToFiles) {
       logger.info("Writing dependency information to {}", logFilePath);
     }
@@ -84,27 +97,32 @@ public class AnalyzeDependenciesTask extends DefaultTask {
 
       logger.info(
           "Analyzing dependencies of {} for [require: {}, allowedToUse: {}, allowedToDeclare: {}]",
-          getClassesDirs(),
+          getClassReferenceFiles().getFiles(),
           resolvedRequire,
           resolvedAllowedToUse,
           resolvedAllowedToDeclare);
     }
 
-    final ProjectDependencyAnalysisResult analysis =
-        new ProjectDependencyResolver(
-                logger,
-                artifactClassCache,
-                require,
-                compileOnly,
-                apiHelperConfiguration,
-                allowedToUse,
-                allowedToDeclare,
-                classesDirs.getFiles(),
-                allowedAggregatorsToUse,
-                logFilePath,
-                logDependencyInformationToFiles)
-            .analyzeDependencies();
+    return new ProjectDependencyResolver(
+            logger,
+            require,
+            compileOnly,
+            apiHelperConfiguration,
+            allowedToUse,
+            allowedToDeclare,
+            allowedAggregatorsToUse,
+            logFilePath,
+            logDependencyInformationToFiles,
+            useArtifactTransform(indexArtifactsWithTransform, logger),
+            classReferenceFiles.getFiles())
+        .analyzeDependencies(
+            getArtifactClassCache().get(),
+            artifactClassIndexStore,
+            indexArtifactsInParallel ? maxWorkerCount : 1);
+  }
 
+  private void report(final ProjectDependencyAnalysisResult analysis, final Path logFilePath)
+      throws IOException {
     warnAndLogOrFail(
         analysis,
         warnUsedUndeclared,
@@ -161,6 +179,67 @@ public class AnalyzeDependenciesTask extends DefaultTask {
     this.logDependencyInformationToFiles = logDependencyInformationToFiles;
   }
 
+  @Internal
+  public Boolean getIndexArtifactsWithTransform() {
+    return indexArtifactsWithTransform;
+  }
+
+  public void setIndexArtifactsWithTransform(final boolean indexArtifactsWithTransform) {
+    this.indexArtifactsWithTransform = indexArtifactsWithTransform;
+  }
+
+  @Internal
+  public Boolean getIndexArtifactsInParallel() {
+    return indexArtifactsInParallel;
+  }
+
+  public void setIndexArtifactsInParallel(final boolean indexArtifactsInParallel) {
+    this.indexArtifactsInParallel = indexArtifactsInParallel;
+  }
+
+  @Internal
+  public Provider<ArtifactClassCache> getArtifactClassCache() {
+    return artifactClassCache;
+  }
+
+  public void setArtifactClassCache(final Provider<ArtifactClassCache> artifactClassCache) {
+    this.artifactClassCache = artifactClassCache;
+  }
+
+  /** Parses the class files on up to as many threads as workers, in the extract task. */
+  @Internal
+  public Property<Boolean> getAnalyzeClassesInParallel() {
+    return analyzeClassesInParallel;
+  }
+
+  public void setAnalyzeClassesInParallel(final boolean analyzeClassesInParallel) {
+    this.analyzeClassesInParallel.set(analyzeClassesInParallel);
+  }
+
+  /**
+   * Drops the classes of the JDK from the class references, in the extract task which has this as
+   * an input.
+   */
+  @Internal
+  public Property<Boolean> getExcludePlatformClasses() {
+    return excludePlatformClasses;
+  }
+
+  public void setExcludePlatformClasses(final boolean excludePlatformClasses) {
+    this.excludePlatformClasses.set(excludePlatformClasses);
+  }
+
+  /** Parses the class files with the constant pool scanner, in the extract task. */
+  @Internal
+  public Property<Boolean> getAnalyzeClassesWithConstantPoolScanner() {
+    return analyzeClassesWithConstantPoolScanner;
+  }
+
+  public void setAnalyzeClassesWithConstantPoolScanner(
+      final boolean analyzeClassesWithConstantPoolScanner) {
+    this.analyzeClassesWithConstantPoolScanner.set(analyzeClassesWithConstantPoolScanner);
+  }
+
   @InputFiles
   @CompileClasspath
   public List<Provider<Configuration>> getCompileOnly() {
@@ -229,18 +308,33 @@ public class AnalyzeDependenciesTask extends DefaultTask {
     this.allowedAggregatorsToUse = allowedAggregatorsToUse;
   }
 
+  /**
+   * Files listing the classes referenced by the analyzed code, written by {@link
+   * ExtractClassReferencesTask}. The class files themselves are only read by the extract task.
+   */
   @InputFiles
-  @Classpath
-  public FileCollection getClassesDirs() {
-    return classesDirs;
-  }
-
-  public void setClassesDirs(final FileCollection classesDirs) {
-    this.classesDirs.setFrom(classesDirs);
+  @PathSensitive(PathSensitivity.NONE)
+  public ConfigurableFileCollection getClassReferenceFiles() {
+    return classReferenceFiles;
   }
 
   @OutputFile
   public RegularFileProperty getLogFile() {
     return logFile;
   }
+
+  /**
+   * Returns whether artifacts are to be indexed with an artifact transform, which requires Gradle
+   * 6.0 or later.
+   */
+  static boolean useArtifactTransform(
+      final boolean indexArtifactsWithTransform, final Logger logger) {
+    if (indexArtifactsWithTransform
+        && !GradleVersionUtil.isArtifactTransformSupported(GradleVersion.current())) {
+      logger.warn(
+          "indexArtifactsWithTransform requires Gradle 6.0 or later, indexing artifacts directly");
+      return false;
+    }
+    return indexArtifactsWithTransform;
+  }
 }
@@ -0,0 +1,281 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassIndexStore;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+/**
+ * Reports how the analysis of the source sets of a project would change if a module was replaced by
+ * another one, for example by a new version of a library. Only the matching stage of the analysis
+ * runs, against the class references extracted for the source sets and the classes of the artifacts
+ * resolved with the replacement; the extract tasks only run if the code has changed since the last
+ * build. The copies of the configurations with the replacement are created when the task runs.
+ *
+ * <p>The task never fails on the issues it finds, as it only answers a question. Run on all
+ * projects of a build it tells which of them would need their dependency declarations changed:
+ *
+ * <pre>
+ * gradle analyzeDependencyChange --replace com.example:library --with com.example:library:2.0
+ * </pre>
+ */
+public class AnalyzeDependencyChangeTask extends DefaultTask {
+  private final Map<String, SourceSetConfigurations> sourceSets = new LinkedHashMap<>();
+  private Provider<ArtifactClassCache> artifactClassCache;
+  private File gradleUserHomeDir;
+  private String projectPath;
+  private String replace;
+  private String with;
+
+  @Inject
+  public AnalyzeDependencyChangeTask(final ProviderFactory providerFactory) {
+    // replaced by the shared cache of the build when the plugin is applied
+    this.artifactClassCache = providerFactory.provider(ArtifactClassCache::new);
+  }
+
+  /** Sets the project whose source sets are analyzed, done by the plugin. */
+  void project(final String path, final File gradleUserHome) {
+    this.projectPath = path;
+    this.gradleUserHomeDir = gradleUserHome;
+  }
+
+  /**
+   * Adds the analysis of a source set to this task, which depends on the extraction of its class
+   * references.
+   *
+   * @param sourceSetName the name of the source set, used to report its changes
+   * @param configurations the configurations and class references of the source set
+   */
+  void analyze(final String sourceSetName, final SourceSetConfigurations configurations) {
+    sourceSets.put(sourceSetName, configurations);
+    dependsOn(configurations.getClassReferences());
+  }
+
+  @Internal
+  public Provider<ArtifactClassCache> getArtifactClassCache() {
+    return artifactClassCache;
+  }
+
+  public void setArtifactClassCache(final Provider<ArtifactClassCache> artifactClassCache) {
+    this.artifactClassCache = artifactClassCache;
+  }
+
+  @Input
+  @Optional
+  public String getReplace() {
+    return replace;
+  }
+
+  @Option(option = "replace", description = "The module to replace, as group:name.")
+  public void setReplace(final String replace) {
+    this.replace = replace;
+  }
+
+  @Input
+  @Optional
+  public String getWith() {
+    return with;
+  }
+
+  @Option(
+      option = "with",
+      description = "The replacement, as group:name:version, or only the new version.")
+  public void setWith(final String with) {
+    this.with = with;
+  }
+
+  @TaskAction
+  public void action() {
+    if (replace == null
+        || with == null
+        || !hasParts(replace, 2)
+        || !(hasParts(with, 3) || hasParts(with, 1))) {
+      throw new InvalidUserDataException(
+          "Both --replace group:name and --with group:name:version or --with version are needed");
+    }
+    final String target = target();
+    // the copies of the configurations of the source sets with the replacement
+    final AtomicBoolean substituted = new AtomicBoolean();
+    final Map<Configuration, Configuration> replaced = new HashMap<>();
+    sourceSets.values().stream()
+        .flatMap(configurations -> configurations.getAll().stream())
+        .map(Provider::get)
+        .forEach(
+            configuration ->
+                replaced.computeIfAbsent(
+                    configuration, original -> replace(original, target, substituted)));
+    final UnaryOperator<Configuration> replacement =
+        configuration -> replaced.getOrDefault(configuration, configuration);
+
+    final ArtifactClassIndexStore artifactClassIndexStore =
+        ArtifactClassIndexStore.inGradleUserHome(gradleUserHomeDir, getLogger());
+    final StringBuilder report = new StringBuilder();
+    for (final Map.Entry<String, SourceSetConfigurations> entry : sourceSets.entrySet()) {
+      final ProjectDependencyAnalysisResult current =
+          analyze(entry.getValue(), UnaryOperator.identity(), artifactClassIndexStore);
+      final ProjectDependencyAnalysisResult changed =
+          analyze(entry.getValue(), replacement, artifactClassIndexStore);
+      final String changes =
+          section(
+                  "newUsedUndeclaredArtifacts",
+                  added(current.getUsedUndeclaredArtifacts(), changed.getUsedUndeclaredArtifacts()))
+              + section(
+                  "newUnusedDeclaredArtifacts",
+                  added(current.getUnusedDeclaredArtifacts(), changed.getUnusedDeclaredArtifacts()))
+              + section(
+                  "fixedUsedUndeclaredArtifacts",
+                  added(changed.getUsedUndeclaredArtifacts(), current.getUsedUndeclaredArtifacts()))
+              + section(
+                  "fixedUnusedDeclaredArtifacts",
+                  added(
+                      changed.getUnusedDeclaredArtifacts(), current.getUnusedDeclaredArtifacts()));
+      if (!changes.isEmpty()) {
+        report
+            .append("Source set ")
+            .append(entry.getKey())
+            .append(':')
+            .append(System.lineSeparator())
+            .append(changes);
+      }
+    }
+    if (!sourceSets.isEmpty() && !substituted.get()) {
+      getLogger()
+          .warn("No dependency of {} on {} found to replace with {}", projectPath, replace, target);
+    }
+    if (report.length() == 0) {
+      getLogger()
+          .lifecycle(
+              "Replacing {} with {} does not change the dependency analysis of {}",
+              replace,
+              target,
+              projectPath);
+    } else {
+      getLogger()
+          .lifecycle(
+              "Replacing {} with {} changes the dependency analysis of {}{}{}",
+              replace,
+              target,
+              projectPath,
+              System.lineSeparator(),
+              report);
+    }
+  }
+
+  private String target() {
+    return with.contains(":") ? with : replace + ':' + with;
+  }
+
+  /** Checks that a value has the given number of non-empty parts separated by colons. */
+  private static boolean hasParts(final String value, final int parts) {
+    final String[] split = value.split(":", -1);
+    return split.length == parts && Arrays.stream(split).noneMatch(String::isEmpty);
+  }
+
+  /**
+   * Matches the class references of a source set against its configurations, each replaced by the
+   * given function. The artifacts are indexed directly, one after the other, as the result does not
+   * depend on how they are indexed.
+   */
+  private ProjectDependencyAnalysisResult analyze(
+      final SourceSetConfigurations configurations,
+      final UnaryOperator<Configuration> replacement,
+      final ArtifactClassIndexStore artifactClassIndexStore) {
+    return new ProjectDependencyResolver(
+            getLogger(),
+            map(configurations.getRequire(), replacement),
+            map(configurations.getCompileOnly(), replacement),
+            map(configurations.getApiHelperConfiguration(), replacement),
+            map(configurations.getAllowedToUse(), replacement),
+            map(configurations.getAllowedToDeclare(), replacement),
+            map(configurations.getAllowedAggregatorsToUse(), replacement),
+            getTemporaryDir().toPath().resolve("dependency-change.log"),
+            false,
+            false,
+            Collections.singleton(configurations.getClassReferences().get().getAsFile()))
+        .analyzeDependencies(artifactClassCache.get(), artifactClassIndexStore, 1);
+  }
+
+  private static List<Provider<Configuration>> map(
+      final List<Provider<Configuration>> configurations,
+      final UnaryOperator<Configuration> function) {
+    return configurations.stream()
+        .map(configuration -> configuration.map(function::apply))
+        .collect(Collectors.toList());
+  }
+
+  private Configuration replace(
+      final Configuration configuration, final String target, final AtomicBoolean substituted) {
+    final Configuration copy = configuration.copyRecursive();
+    copy.getResolutionStrategy()
+        .getDependencySubstitution()
+        .all(
+            substitution -> {
+              if (substitution.getRequested() instanceof ModuleComponentSelector) {
+                final ModuleComponentSelector requested =
+                    (ModuleComponentSelector) substitution.getRequested();
+                if (replace.equals(requested.getGroup() + ':' + requested.getModule())) {
+                  substitution.useTarget(target);
+                  substituted.set(true);
+                }
+              }
+            });
+    return copy;
+  }
+
+  /**
+   * Returns the components of the second set missing from the first one, comparing modules without
+   * their version, so a version change of a component does not report it.
+   */
+  private static Set<ComponentIdentifier> added(
+      final Set<ComponentIdentifier> before, final Set<ComponentIdentifier> after) {
+    final Set<String> keys =
+        before.stream().map(AnalyzeDependencyChangeTask::key).collect(Collectors.toSet());
+    return after.stream()
+        .filter(identifier -> !keys.contains(key(identifier)))
+        .collect(Collectors.toSet());
+  }
+
+  private static String key(final ComponentIdentifier identifier) {
+    if (identifier instanceof ModuleComponentIdentifier) {
+      final ModuleComponentIdentifier module = (ModuleComponentIdentifier) identifier;
+      return module.getGroup() + ':' + module.getModule();
+    }
+    return identifier.getDisplayName();
+  }
+
+  private static String section(
+      final String sectionName, final Set<ComponentIdentifier> identifiers) {
+    if (identifiers.isEmpty()) {
+      return "";
+    }
+    return identifiers.stream()
+        .map(ComponentIdentifier::getDisplayName)
+        .sorted(Comparator.naturalOrder())
+        .map(name -> "   - " + name + System.lineSeparator())
+        .collect(Collectors.joining("", "  " + sectionName + System.lineSeparator(), ""));
+  }
+}
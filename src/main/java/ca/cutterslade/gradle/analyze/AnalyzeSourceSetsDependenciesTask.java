@@ -0,0 +1,253 @@
+package ca.cutterslade.gradle.analyze;
+
+import static ca.cutterslade.gradle.analyze.util.ProjectDependencyAnalysisResultHandler.warnAndLogOrFail;
+
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassIndexStore;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspathNormalizer;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskInputs;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Analyzes all source sets of a project in a single task, instead of one analyze task per source
+ * set. Each source set is still analyzed and reported as configured on its own analyze task: the
+ * configurations are the ones the plugin sets on the analyze task, and its settings are read
+ * through providers, so configuring this task does not realize the analyze tasks, which do not run.
+ * The class references come from the extract tasks of the source sets, the artifacts of all source
+ * sets are indexed in a single pass with the index settings of this task, and the dependencies of
+ * each source set are then classified on their own. The source sets share the up-to-date check and
+ * build cache entry of a single task.
+ *
+ * <p>The inputs of the source sets are registered with their source set name as prefix, so this
+ * task is up to date as long as none of the analyze tasks would have run.
+ */
+@CacheableTask
+public class AnalyzeSourceSetsDependenciesTask extends DefaultTask {
+  private final Map<String, SourceSetAnalysis> sourceSets = new LinkedHashMap<>();
+  private final ProviderFactory providerFactory;
+  private final File gradleUserHomeDir;
+  private final int maxWorkerCount;
+  private final DirectoryProperty logDirectory;
+  private Boolean indexArtifactsWithTransform = false;
+  private Boolean indexArtifactsInParallel = false;
+  private Provider<ArtifactClassCache> artifactClassCache;
+
+  @Inject
+  public AnalyzeSourceSetsDependenciesTask(
+      final ProjectLayout projectLayout,
+      final ObjectFactory objectFactory,
+      final ProviderFactory providerFactory) {
+    this.providerFactory = providerFactory;
+    this.logDirectory = objectFactory.directoryProperty();
+    this.gradleUserHomeDir = getProject().getGradle().getGradleUserHomeDir();
+    this.maxWorkerCount = getProject().getGradle().getStartParameter().getMaxWorkerCount();
+    // replaced by the shared cache of the build when the plugin is applied
+    this.artifactClassCache = providerFactory.provider(ArtifactClassCache::new);
+    logDirectory.convention(
+        projectLayout.getBuildDirectory().dir("reports/dependency-analyze/" + getName()));
+  }
+
+  /**
+   * Adds the analysis of a source set to this task, with the configurations of its analyze task.
+   * The settings of the analyze task are read when the inputs of this task are fingerprinted, so
+   * later changes still apply.
+   *
+   * @param sourceSetName the name of the source set, used to report its issues
+   * @param configurations the configurations and class references of the source set
+   * @param analyzeTask the analyze task of the source set, whose settings are used
+   */
+  void analyze(
+      final String sourceSetName,
+      final SourceSetConfigurations configurations,
+      final TaskProvider<AnalyzeDependenciesTask> analyzeTask) {
+    final SourceSetAnalysis sourceSet = new SourceSetAnalysis(configurations, analyzeTask);
+    sourceSets.put(sourceSetName, sourceSet);
+
+    final TaskInputs inputs = getInputs();
+    inputs
+        .files(configurations.getClassReferences())
+        .withPropertyName(sourceSetName + ".classReferenceFiles")
+        .withPathSensitivity(PathSensitivity.NONE);
+    final Map<String, List<Provider<Configuration>>> inputConfigurations = new LinkedHashMap<>();
+    inputConfigurations.put("require", configurations.getRequire());
+    inputConfigurations.put("compileOnly", configurations.getCompileOnly());
+    inputConfigurations.put("apiHelperConfiguration", configurations.getApiHelperConfiguration());
+    inputConfigurations.put("allowedToUse", configurations.getAllowedToUse());
+    inputConfigurations.put("allowedToDeclare", configurations.getAllowedToDeclare());
+    inputConfigurations.put("allowedAggregatorsToUse", configurations.getAllowedAggregatorsToUse());
+    inputConfigurations.forEach(
+        (name, configuration) ->
+            inputs
+                .files(configuration)
+                .withPropertyName(sourceSetName + '.' + name)
+                .withNormalizer(CompileClasspathNormalizer.class));
+    // the settings which are inputs of the analyze tasks, the others only affect how it runs
+    for (final String name :
+        Arrays.asList(
+            "warnUsedUndeclared",
+            "warnUnusedDeclared",
+            "warnSuperfluous",
+            "warnCompileOnly",
+            "logDependencyInformationToFiles")) {
+      inputs.property(sourceSetName + '.' + name, sourceSet.flags.get(name));
+    }
+  }
+
+  @TaskAction
+  public void action() throws IOException {
+    final ArtifactClassIndexStore artifactClassIndexStore =
+        ArtifactClassIndexStore.inGradleUserHome(gradleUserHomeDir, getLogger());
+    final List<String> names = new ArrayList<>(sourceSets.keySet());
+    final List<ProjectDependencyResolver> resolvers = new ArrayList<>();
+    for (final String name : names) {
+      resolvers.add(resolver(name, sourceSets.get(name)));
+    }
+    final List<ProjectDependencyAnalysisResult> results =
+        ProjectDependencyResolver.analyzeDependencies(
+            getLogger(),
+            artifactClassCache.get(),
+            artifactClassIndexStore,
+            indexArtifactsInParallel ? maxWorkerCount : 1,
+            resolvers);
+
+    final List<String> issues = new ArrayList<>();
+    for (int i = 0; i < names.size(); i++) {
+      final SourceSetAnalysis sourceSet = sourceSets.get(names.get(i));
+      try {
+        warnAndLogOrFail(
+            results.get(i),
+            sourceSet.flag("warnUsedUndeclared"),
+            sourceSet.flag("warnUnusedDeclared"),
+            sourceSet.flag("warnCompileOnly"),
+            sourceSet.flag("warnSuperfluous"),
+            logFile(names.get(i)),
+            sourceSet.flag("logDependencyInformationToFiles"),
+            getLogger());
+      } catch (final DependencyAnalysisException e) {
+        issues.add("Source set " + names.get(i) + ':' + System.lineSeparator() + e.getMessage());
+      }
+    }
+    if (!issues.isEmpty()) {
+      throw new DependencyAnalysisException(String.join(System.lineSeparator(), issues));
+    }
+  }
+
+  private ProjectDependencyResolver resolver(final String name, final SourceSetAnalysis sourceSet) {
+    final boolean logToFiles = sourceSet.flag("logDependencyInformationToFiles");
+    if (logToFiles) {
+      getLogger()
+          .info("Writing dependency information of source set {} to {}", name, logFile(name));
+    }
+    return new ProjectDependencyResolver(
+        getLogger(),
+        sourceSet.configurations.getRequire(),
+        sourceSet.configurations.getCompileOnly(),
+        sourceSet.configurations.getApiHelperConfiguration(),
+        sourceSet.configurations.getAllowedToUse(),
+        sourceSet.configurations.getAllowedToDeclare(),
+        sourceSet.configurations.getAllowedAggregatorsToUse(),
+        logFile(name),
+        logToFiles,
+        AnalyzeDependenciesTask.useArtifactTransform(indexArtifactsWithTransform, getLogger()),
+        Collections.singleton(sourceSet.configurations.getClassReferences().get().getAsFile()));
+  }
+
+  private Path logFile(final String sourceSetName) {
+    return logDirectory.file(sourceSetName + ".log").get().getAsFile().toPath();
+  }
+
+  /**
+   * Whether the artifacts of all source sets are indexed with the artifact transform, as with the
+   * setting of the same name of the analyze tasks, which is not used by this task.
+   */
+  @Internal
+  public Boolean getIndexArtifactsWithTransform() {
+    return indexArtifactsWithTransform;
+  }
+
+  public void setIndexArtifactsWithTransform(final boolean indexArtifactsWithTransform) {
+    this.indexArtifactsWithTransform = indexArtifactsWithTransform;
+  }
+
+  /**
+   * Whether the artifacts of all source sets are indexed in parallel, as with the setting of the
+   * same name of the analyze tasks, which is not used by this task.
+   */
+  @Internal
+  public Boolean getIndexArtifactsInParallel() {
+    return indexArtifactsInParallel;
+  }
+
+  public void setIndexArtifactsInParallel(final boolean indexArtifactsInParallel) {
+    this.indexArtifactsInParallel = indexArtifactsInParallel;
+  }
+
+  @Internal
+  public Provider<ArtifactClassCache> getArtifactClassCache() {
+    return artifactClassCache;
+  }
+
+  public void setArtifactClassCache(final Provider<ArtifactClassCache> artifactClassCache) {
+    this.artifactClassCache = artifactClassCache;
+  }
+
+  @OutputDirectory
+  public DirectoryProperty getLogDirectory() {
+    return logDirectory;
+  }
+
+  /**
+   * The configurations of a source set and the settings of its analyze task. The settings are plain
+   * properties of the analyze task, read through providers which only realize the analyze task when
+   * they are queried.
+   */
+  private final class SourceSetAnalysis {
+    private final SourceSetConfigurations configurations;
+    private final Map<String, Provider<Boolean>> flags = new LinkedHashMap<>();
+
+    private SourceSetAnalysis(
+        final SourceSetConfigurations configurations,
+        final TaskProvider<AnalyzeDependenciesTask> analyzeTask) {
+      this.configurations = configurations;
+      final Map<String, Function<AnalyzeDependenciesTask, Boolean>> settings =
+          new LinkedHashMap<>();
+      settings.put("warnUsedUndeclared", AnalyzeDependenciesTask::getWarnUsedUndeclared);
+      settings.put("warnUnusedDeclared", AnalyzeDependenciesTask::getWarnUnusedDeclared);
+      settings.put("warnSuperfluous", AnalyzeDependenciesTask::getWarnSuperfluous);
+      settings.put("warnCompileOnly", AnalyzeDependenciesTask::getWarnCompileOnly);
+      settings.put(
+          "logDependencyInformationToFiles",
+          AnalyzeDependenciesTask::getLogDependencyInformationToFiles);
+      settings.forEach(
+          (name, setting) ->
+              flags.put(name, providerFactory.provider(() -> setting.apply(analyzeTask.get()))));
+    }
+
+    private boolean flag(final String name) {
+      return flags.get(name).get();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.GradleVersionUtil;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.util.GradleVersion;
+
+/**
+ * Build service holding the artifact class cache shared by all analyze tasks of a build. Gradle
+ * creates the service when the first analyze task runs and closes it at the end of the build, which
+ * releases the cache.
+ */
+public abstract class ArtifactClassCacheService
+    implements BuildService<ArtifactClassCacheService.Parameters>, AutoCloseable {
+  static final String NAME = "ca.cutterslade.gradle.analyze.artifactClassCache";
+
+  private final ArtifactClassCache cache =
+      new ArtifactClassCache(getParameters().getMaxClasses().getOrElse(0));
+
+  public interface Parameters extends BuildServiceParameters {
+    /** Maximum number of class names held by the cache, 0 for an unbounded cache. */
+    Property<Integer> getMaxClasses();
+  }
+
+  public ArtifactClassCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public void close() {
+    cache.clear();
+  }
+
+  /**
+   * Registers the service with the build, unless already done by another project, and connects all
+   * analyze and extract tasks of the project to it.
+   *
+   * @param project the project the plugin is applied to
+   */
+  static void registerFor(final Project project) {
+    final Provider<ArtifactClassCacheService> service =
+        project
+            .getGradle()
+            .getSharedServices()
+            .registerIfAbsent(
+                NAME,
+                ArtifactClassCacheService.class,
+                spec ->
+                    spec.getParameters()
+                        .getMaxClasses()
+                        .set(AnalyzeDependenciesPlugin.artifactClassCacheLimit(project)));
+    project
+        .getTasks()
+        .withType(AnalyzeDependenciesTask.class)
+        .configureEach(
+            task -> {
+              task.setArtifactClassCache(service.map(ArtifactClassCacheService::getCache));
+              if (GradleVersionUtil.isUsesServiceSupported(GradleVersion.current())) {
+                task.usesService(service);
+              }
+            });
+    project
+        .getTasks()
+        .withType(AnalyzeSourceSetsDependenciesTask.class)
+        .configureEach(
+            task -> {
+              task.setArtifactClassCache(service.map(ArtifactClassCacheService::getCache));
+              if (GradleVersionUtil.isUsesServiceSupported(GradleVersion.current())) {
+                task.usesService(service);
+              }
+            });
+    project
+        .getTasks()
+        .withType(AnalyzeDependencyChangeTask.class)
+        .configureEach(
+            task -> {
+              task.setArtifactClassCache(service.map(ArtifactClassCacheService::getCache));
+              if (GradleVersionUtil.isUsesServiceSupported(GradleVersion.current())) {
+                task.usesService(service);
+              }
+            });
+    project
+        .getTasks()
+        .withType(ExtractClassReferencesTask.class)
+        .configureEach(
+            task -> {
+              task.setArtifactClassCache(service.map(ArtifactClassCacheService::getCache));
+              if (GradleVersionUtil.isUsesServiceSupported(GradleVersion.current())) {
+                task.usesService(service);
+              }
+            });
+  }
+}
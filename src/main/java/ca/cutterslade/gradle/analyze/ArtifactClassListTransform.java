@@ -0,0 +1,122 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.util.ClassFileCollectorUtil;
+import ca.cutterslade.gradle.analyze.util.JavaUtil.LinkedHashSetValuedLinkedHashMap;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+/**
+ * Artifact transform turning a jar or nar into a file listing the names of the classes it contains.
+ * Gradle caches the output per artifact, so a given library version is only indexed once per
+ * machine, or once per build cache when the remote build cache is used.
+ */
+@CacheableTransform
+public abstract class ArtifactClassListTransform
+    implements TransformAction<TransformParameters.None> {
+  static final String CLASS_LIST_TYPE = "dependency-analyze-class-list";
+
+  @InputArtifact
+  @PathSensitive(PathSensitivity.NAME_ONLY)
+  public abstract Provider<FileSystemLocation> getInputArtifact();
+
+  @Override
+  public void transform(final TransformOutputs outputs) {
+    final File input = getInputArtifact().get().getAsFile();
+    final List<String> classes =
+        ClassFileCollectorUtil.collectFromFile(input).stream()
+            .sorted()
+            .collect(Collectors.toList());
+    final File output = outputs.file(input.getName() + ClassFileCollectorUtil.CLASS_LIST_SUFFIX);
+    try {
+      Files.write(output.toPath(), classes, StandardCharsets.UTF_8);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("unable to write class list for " + input, e);
+    }
+  }
+
+  /**
+   * Registers the transform from the jar and nar artifact types to the class list artifact type.
+   *
+   * @param dependencies the dependency handler of the project
+   */
+  static void register(final DependencyHandler dependencies) {
+    for (final String artifactType : new String[] {ArtifactTypeDefinition.JAR_TYPE, "nar"}) {
+      dependencies.registerTransform(
+          ArtifactClassListTransform.class,
+          spec -> {
+            spec.getFrom().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, artifactType);
+            spec.getTo().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, CLASS_LIST_TYPE);
+          });
+    }
+  }
+
+  /**
+   * Tells whether the transform produces the class list of an artifact file, which is the case for
+   * the jar and nar files it is registered for.
+   *
+   * @param file the artifact file
+   * @return whether the file is a jar or nar file
+   */
+  static boolean isTransformable(final File file) {
+    final String name = file.getName();
+    return file.isFile() && (name.endsWith(".jar") || name.endsWith(".nar"));
+  }
+
+  /**
+   * Resolves the class lists of the artifacts of the given components in the given configurations.
+   * Only components whose artifacts are all {@link #isTransformable transformable} should be given,
+   * the others, like class directories of other projects, have to be indexed directly. Failures to
+   * resolve or transform the artifacts are thrown.
+   *
+   * @param configurationProviders a collection of Configuration providers
+   * @param components the components to resolve the class lists of
+   * @return the class list files of each component
+   */
+  static MultiValuedMap<ComponentIdentifier, File> resolveClassLists(
+      final Collection<Provider<Configuration>> configurationProviders,
+      final Set<ComponentIdentifier> components) {
+    final MultiValuedMap<ComponentIdentifier, File> classLists =
+        new LinkedHashSetValuedLinkedHashMap<>();
+    for (final Provider<Configuration> configurationProvider : configurationProviders) {
+      final Iterable<ResolvedArtifactResult> artifacts =
+          configurationProvider
+              .get()
+              .getIncoming()
+              .artifactView(
+                  view -> {
+                    view.componentFilter(components::contains);
+                    view.attributes(
+                        attributes ->
+                            attributes.attribute(
+                                ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, CLASS_LIST_TYPE));
+                  })
+              .getArtifacts();
+      for (final ResolvedArtifactResult artifact : artifacts) {
+        classLists.put(artifact.getId().getComponentIdentifier(), artifact.getFile());
+      }
+    }
+    return classLists;
+  }
+}
@@ -0,0 +1,149 @@
+package ca.cutterslade.gradle.analyze;
+
+import static ca.cutterslade.gradle.analyze.util.JavaUtil.collectMany;
+import static ca.cutterslade.gradle.analyze.util.JavaUtil.findAll;
+
+import ca.cutterslade.gradle.analyze.javac.RecordedReferences;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassIndexStore;
+import ca.cutterslade.gradle.analyze.util.ClassReferenceCache;
+import ca.cutterslade.gradle.analyze.util.ConstantPoolDependencyAnalyzer;
+import ca.cutterslade.gradle.analyze.util.PlatformClassIndex;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.maven.shared.dependency.analyzer.DependencyAnalyzer;
+import org.apache.maven.shared.dependency.analyzer.asm.ASMDependencyAnalyzer;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Determines the classes referenced by the class files of a project for the {@link
+ * ExtractClassReferencesTask}, and reads and writes the file passing them to the analyze task. The
+ * file lists one class name per line, sorted so that equal references produce an equal file.
+ */
+final class ClassReferenceExtractor {
+  private final Logger logger;
+  private final Path classReferenceCacheFile;
+  private final int parallelism;
+  private final boolean constantPoolScanner;
+  private final DependencyAnalyzer dependencyAnalyzer;
+  private final Set<String> platformClasses;
+
+  ClassReferenceExtractor(
+      final Logger logger,
+      final Path classReferenceCacheFile,
+      final int parallelism,
+      final boolean constantPoolScanner,
+      final Set<String> platformClasses) {
+    this.logger = logger;
+    this.classReferenceCacheFile = classReferenceCacheFile;
+    this.parallelism = parallelism;
+    this.constantPoolScanner = constantPoolScanner;
+    this.dependencyAnalyzer =
+        constantPoolScanner ? new ConstantPoolDependencyAnalyzer() : new ASMDependencyAnalyzer();
+    this.platformClasses = platformClasses;
+  }
+
+  /**
+   * Determines the classes referenced by the classes directories and jars of a project, without the
+   * platform classes given to the extractor.
+   *
+   * @param classesDirs the classes directories and jars
+   * @param javacReferenceFiles files with references recorded during the compilation of the classes
+   * @return the referenced class names
+   */
+  Set<String> extract(
+      final Collection<File> classesDirs, final Collection<File> javacReferenceFiles) {
+    final List<File> directories =
+        classesDirs.stream().filter(File::isDirectory).collect(Collectors.toList());
+    final Set<String> references = new HashSet<>();
+    if (!directories.isEmpty()) {
+      final ClassReferenceCache classReferenceCache =
+          ClassReferenceCache.load(classReferenceCacheFile, logger, constantPoolScanner);
+      try {
+        references.addAll(
+            classReferenceCache.analyze(
+                directories, readJavacReferences(javacReferenceFiles), parallelism));
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      classReferenceCache.save();
+    }
+    references.addAll(
+        collectMany(
+            findAll(new LinkedHashSet<>(classesDirs), file -> !file.isDirectory()),
+            file -> dependencyAnalyzer.analyze(file.toURI().toURL())));
+    if (!platformClasses.isEmpty()) {
+      final int referenceCount = references.size();
+      references.removeIf(platformClasses::contains);
+      logger.info(
+          "Excluded {} platform classes from {} referenced classes",
+          referenceCount - references.size(),
+          referenceCount);
+    }
+    return references;
+  }
+
+  /**
+   * Returns the classes of the given JDK if platform classes are to be excluded.
+   *
+   * @param excludePlatformClasses true to exclude platform classes
+   * @param javaHome the JDK the classes are compiled against
+   * @param cache the artifact class cache of the build, holding the index of the JDK in memory
+   * @param gradleUserHome the Gradle user home holding the index of the JDK
+   * @param logger logger
+   * @return the platform classes, empty if they are not to be excluded
+   */
+  static Set<String> platformClasses(
+      final boolean excludePlatformClasses,
+      final File javaHome,
+      final ArtifactClassCache cache,
+      final File gradleUserHome,
+      final Logger logger) {
+    return excludePlatformClasses
+        ? PlatformClassIndex.classes(
+            javaHome,
+            cache,
+            ArtifactClassIndexStore.inGradleUserHome(gradleUserHome, logger),
+            logger)
+        : Collections.emptySet();
+  }
+
+  private static Map<String, List<String>> readJavacReferences(final Collection<File> files)
+      throws IOException {
+    final Map<String, List<String>> references = new HashMap<>();
+    for (final File file : files) {
+      if (file.isFile()) {
+        references.putAll(RecordedReferences.read(file.toPath()));
+      }
+    }
+    return references;
+  }
+
+  static void write(final Path file, final Set<String> references) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(
+        file, references.stream().sorted().collect(Collectors.toList()), StandardCharsets.UTF_8);
+  }
+
+  static Set<String> read(final Collection<File> files) throws IOException {
+    final Set<String> references = new HashSet<>();
+    for (final File file : files) {
+      references.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+    references.remove("");
+    return references;
+  }
+}
@@ -0,0 +1,160 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import java.io.File;
+import java.io.IOException;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Extracts the classes referenced by the class files of a source set into a file consumed by the
+ * analyze task. Splitting this off the analyze task means a change of the dependencies does not
+ * parse the class files again, and a change of the code which references the same classes leaves
+ * the input of the analyze task unchanged.
+ */
+@CacheableTask
+public class ExtractClassReferencesTask extends DefaultTask {
+  private final Property<Boolean> analyzeClassesInParallel;
+  private final Property<Boolean> analyzeClassesWithConstantPoolScanner;
+  private final Property<Boolean> excludePlatformClasses;
+  private final int maxWorkerCount;
+  private final File gradleUserHomeDir;
+  private final ConfigurableFileCollection classesDirs;
+  private final ConfigurableFileCollection javacReferenceFiles;
+  private final RegularFileProperty referencesFile;
+  private final DirectoryProperty platformJavaHome;
+  private final Property<String> platformJavaVersion;
+  private Provider<ArtifactClassCache> artifactClassCache;
+
+  @Inject
+  public ExtractClassReferencesTask(
+      final ProjectLayout projectLayout,
+      final ObjectFactory objectFactory,
+      final ProviderFactory providerFactory) {
+    this.analyzeClassesInParallel = objectFactory.property(Boolean.class).convention(false);
+    this.analyzeClassesWithConstantPoolScanner =
+        objectFactory.property(Boolean.class).convention(false);
+    this.excludePlatformClasses = objectFactory.property(Boolean.class).convention(false);
+    this.classesDirs = objectFactory.fileCollection();
+    this.javacReferenceFiles = objectFactory.fileCollection();
+    this.referencesFile = objectFactory.fileProperty();
+    this.platformJavaHome = objectFactory.directoryProperty();
+    this.platformJavaVersion = objectFactory.property(String.class);
+    this.maxWorkerCount = getProject().getGradle().getStartParameter().getMaxWorkerCount();
+    this.gradleUserHomeDir = getProject().getGradle().getGradleUserHomeDir();
+    // replaced by the shared cache of the build when the plugin is applied
+    this.artifactClassCache = providerFactory.provider(ArtifactClassCache::new);
+    platformJavaHome.convention(
+        projectLayout.getProjectDirectory().dir(System.getProperty("java.home")));
+    platformJavaVersion.convention(JavaVersion.current().getMajorVersion());
+  }
+
+  @TaskAction
+  public void action() throws IOException {
+    ClassReferenceExtractor.write(
+        referencesFile.get().getAsFile().toPath(),
+        new ClassReferenceExtractor(
+                getLogger(),
+                getTemporaryDir().toPath().resolve("class-references.bin"),
+                analyzeClassesInParallel.get() ? maxWorkerCount : 1,
+                analyzeClassesWithConstantPoolScanner.get(),
+                ClassReferenceExtractor.platformClasses(
+                    excludePlatformClasses.get(),
+                    platformJavaHome.get().getAsFile(),
+                    artifactClassCache.get(),
+                    gradleUserHomeDir,
+                    getLogger()))
+            .extract(classesDirs.getFiles(), javacReferenceFiles.getFiles()));
+  }
+
+  @Internal
+  public Property<Boolean> getAnalyzeClassesInParallel() {
+    return analyzeClassesInParallel;
+  }
+
+  @Input
+  public Property<Boolean> getExcludePlatformClasses() {
+    return excludePlatformClasses;
+  }
+
+  /**
+   * The JDK whose classes are excluded, by default the one running Gradle. The plugin uses the
+   * toolchain of the Java compilation of the source set.
+   */
+  @Internal
+  public DirectoryProperty getPlatformJavaHome() {
+    return platformJavaHome;
+  }
+
+  /**
+   * The language version of the JDK whose classes are excluded, as it determines the output. By
+   * default the one running Gradle, the plugin uses the toolchain of the Java compilation of the
+   * source set.
+   */
+  @Input
+  public Property<String> getPlatformJavaVersion() {
+    return platformJavaVersion;
+  }
+
+  @Internal
+  public Property<Boolean> getAnalyzeClassesWithConstantPoolScanner() {
+    return analyzeClassesWithConstantPoolScanner;
+  }
+
+  @InputFiles
+  @Classpath
+  public FileCollection getClassesDirs() {
+    return classesDirs;
+  }
+
+  public void setClassesDirs(final FileCollection classesDirs) {
+    this.classesDirs.setFrom(classesDirs);
+  }
+
+  /**
+   * Files holding the classes referenced by the Java classes of the classes directories, recorded
+   * during their compilation. Whether they exist changes how the classes are analyzed, so they are
+   * an input even though javac writes them together with the class files.
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.NONE)
+  @Optional
+  public ConfigurableFileCollection getJavacReferenceFiles() {
+    return javacReferenceFiles;
+  }
+
+  @OutputFile
+  public RegularFileProperty getReferencesFile() {
+    return referencesFile;
+  }
+
+  /** The cache holding the classes of the JDK whose classes are excluded. */
+  @Internal
+  public Provider<ArtifactClassCache> getArtifactClassCache() {
+    return artifactClassCache;
+  }
+
+  public void setArtifactClassCache(final Provider<ArtifactClassCache> artifactClassCache) {
+    this.artifactClassCache = artifactClassCache;
+  }
+}
@@ -0,0 +1,146 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.javac.RecordedReferences;
+import ca.cutterslade.gradle.analyze.javac.ReferenceRecordingPlugin;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.process.CommandLineArgumentProvider;
+
+/**
+ * Adds the {@link ReferenceRecordingPlugin} to the Java compilation of a source set, so that the
+ * extraction of class references can take the classes referenced by the Java classes from the file
+ * written by javac instead of parsing their class files.
+ */
+final class JavacReferenceRecording {
+  private static final String SERVICE_FILE = "META-INF/services/com.sun.source.util.Plugin";
+  // not loaded by Gradle, as the javac plugin API is not available on every Java runtime
+  private static final String PLUGIN_CLASS_NAME =
+      "ca.cutterslade.gradle.analyze.javac.ReferenceRecordingPlugin";
+
+  private JavacReferenceRecording() {}
+
+  static void configure(
+      final Project project,
+      final SourceSet sourceSet,
+      final TaskProvider<ExtractClassReferencesTask> extractTask) {
+    final Provider<RegularFile> referencesFile =
+        project
+            .getLayout()
+            .getBuildDirectory()
+            .file("dependency-analyze/" + sourceSet.getCompileJavaTaskName() + ".references");
+    project
+        .getDependencies()
+        .add(sourceSet.getAnnotationProcessorConfigurationName(), project.files(pluginPath()));
+    project
+        .getTasks()
+        .withType(JavaCompile.class)
+        .matching(task -> task.getName().equals(sourceSet.getCompileJavaTaskName()))
+        .configureEach(
+            task ->
+                task.getOptions()
+                    .getCompilerArgumentProviders()
+                    .add(new PluginArguments(referencesFile)));
+    extractTask.configure(task -> task.getJavacReferenceFiles().from(referencesFile));
+  }
+
+  /**
+   * The classes of the javac plugin and its service file, which are in different directories when
+   * the plugin is not loaded from its jar.
+   */
+  private static Set<File> pluginPath() {
+    final Set<File> path = new LinkedHashSet<>();
+    path.add(toFile(RecordedReferences.class.getProtectionDomain().getCodeSource().getLocation()));
+    try {
+      final Enumeration<URL> serviceFiles =
+          RecordedReferences.class.getClassLoader().getResources(SERVICE_FILE);
+      for (final URL serviceFile : Collections.list(serviceFiles)) {
+        if (declaresPlugin(serviceFile)) {
+          path.add(root(serviceFile));
+        }
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException("unable to locate " + SERVICE_FILE, e);
+    }
+    return path;
+  }
+
+  private static boolean declaresPlugin(final URL serviceFile) throws IOException {
+    final URLConnection connection = serviceFile.openConnection();
+    connection.setUseCaches(false);
+    try (final BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().equals(PLUGIN_CLASS_NAME)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static File root(final URL serviceFile) throws IOException {
+    if ("jar".equals(serviceFile.getProtocol())) {
+      final JarURLConnection connection = (JarURLConnection) serviceFile.openConnection();
+      connection.setUseCaches(false);
+      return toFile(connection.getJarFileURL());
+    }
+    // META-INF/services/<file> below the root directory
+    return toFile(serviceFile).getParentFile().getParentFile().getParentFile();
+  }
+
+  private static File toFile(final URL url) {
+    try {
+      return Paths.get(url.toURI()).toFile();
+    } catch (final URISyntaxException e) {
+      throw new IllegalArgumentException("unable to locate " + url, e);
+    }
+  }
+
+  /**
+   * Enables the javac plugin, javac splits the arguments of a plugin at whitespace so the output
+   * file is passed as URI.
+   */
+  static final class PluginArguments implements CommandLineArgumentProvider {
+    private final Provider<RegularFile> referencesFile;
+
+    PluginArguments(final Provider<RegularFile> referencesFile) {
+      this.referencesFile = referencesFile;
+    }
+
+    @OutputFile
+    public Provider<RegularFile> getReferencesFile() {
+      return referencesFile;
+    }
+
+    @Override
+    public Iterable<String> asArguments() {
+      return Collections.singletonList(
+          "-Xplugin:"
+              + ReferenceRecordingPlugin.NAME
+              + " "
+              + referencesFile.get().getAsFile().toURI());
+    }
+  }
+}
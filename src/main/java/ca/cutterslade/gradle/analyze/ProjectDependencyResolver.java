@@ -1,21 +1,27 @@
 package ca.cutterslade.gradle.analyze;
 
 import static ca.cutterslade.gradle.analyze.util.ClassFileCollectorUtil.buildArtifactClassMap;
+import static ca.cutterslade.gradle.analyze.util.ComponentIdentifierIndex.and;
+import static ca.cutterslade.gradle.analyze.util.ComponentIdentifierIndex.andNot;
 import static ca.cutterslade.gradle.analyze.util.JavaUtil.*;
 import static ca.cutterslade.gradle.analyze.util.ProjectDependencyResolverUtils.*;
 
 import ca.cutterslade.gradle.analyze.logging.AnalyzeDependenciesLogger;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassIndexStore;
+import ca.cutterslade.gradle.analyze.util.ClassNameSet;
+import ca.cutterslade.gradle.analyze.util.ComponentIdentifierIndex;
 import ca.cutterslade.gradle.analyze.util.JavaUtil;
+import ca.cutterslade.gradle.analyze.util.TransitiveArtifacts;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.MultiValuedMap;
-import org.apache.commons.collections4.SetUtils;
-import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
-import org.apache.maven.shared.dependency.analyzer.DependencyAnalyzer;
-import org.apache.maven.shared.dependency.analyzer.asm.ASMDependencyAnalyzer;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.ResolvedDependency;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
@@ -27,33 +33,35 @@ class ProjectDependencyResolver {
       "ca.cutterslade.gradle.analyze.ProjectDependencyResolver.artifactClassCache";
   private static final JavaUtil.Function<ResolvedArtifact, ComponentIdentifier, RuntimeException>
       resolvedArtifactToComponentIdentifier = artifact -> artifact.getId().getComponentIdentifier();
-  private final DependencyAnalyzer dependencyAnalyzer = new ASMDependencyAnalyzer();
-  private final HashSetValuedHashMap<File, String> artifactClassCache;
   private final Logger logger;
   private final List<Provider<Configuration>> require;
   private final List<Provider<Configuration>> compileOnly;
   private final List<Provider<Configuration>> api;
   private final List<Provider<Configuration>> allowedToUse;
   private final List<Provider<Configuration>> allowedToDeclare;
-  private final Collection<File> classesDirs;
+  private final TransitiveArtifacts transitiveArtifacts = new TransitiveArtifacts();
   private final Map<ComponentIdentifier, Set<ComponentIdentifier>> aggregatorsWithDependencies;
   private final Map<ComponentIdentifier, Set<ComponentIdentifier>> pomsWithDependencies;
   private final Path logFilePath;
   private final boolean logDependencyInformationToFiles;
+  private final boolean indexArtifactsWithTransform;
+  private final Collection<File> classReferenceFiles;
 
   ProjectDependencyResolver(
       final Logger logger,
-      final HashSetValuedHashMap<File, String> artifactClassCache,
       final List<Provider<Configuration>> require,
       final List<Provider<Configuration>> compileOnly,
       final List<Provider<Configuration>> apiHelperConfiguration,
       final List<Provider<Configuration>> allowedToUse,
       final List<Provider<Configuration>> allowedToDeclare,
-      final Collection<File> classesDirs,
       final List<Provider<Configuration>> allowedAggregatorsToUse,
       final Path logFilePath,
-      final boolean logDependencyInformationToFiles) {
+      final boolean logDependencyInformationToFiles,
+      final boolean indexArtifactsWithTransform,
+      final Collection<File> classReferenceFiles) {
     this.logDependencyInformationToFiles = logDependencyInformationToFiles;
+    this.indexArtifactsWithTransform = indexArtifactsWithTransform;
+    this.classReferenceFiles = classReferenceFiles;
     this.logFilePath = logFilePath;
     this.logger = logger;
     this.require = require;
@@ -61,193 +69,324 @@ class ProjectDependencyResolver {
     this.api = apiHelperConfiguration;
     this.allowedToUse = allowedToUse;
     this.allowedToDeclare = allowedToDeclare;
-    this.classesDirs = classesDirs;
-    this.pomsWithDependencies = getPomsWithDependenciesMapping(require, logger);
-    this.aggregatorsWithDependencies = getAggregatorsMapping(allowedAggregatorsToUse);
-    this.artifactClassCache = artifactClassCache;
+    this.pomsWithDependencies =
+        getPomsWithDependenciesMapping(require, transitiveArtifacts, logger);
+    this.aggregatorsWithDependencies =
+        getAggregatorsMapping(allowedAggregatorsToUse, transitiveArtifacts);
   }
 
-  ProjectDependencyAnalysisResult analyzeDependencies() {
-    return AnalyzeDependenciesLogger.create(
-        logger,
-        logDependencyInformationToFiles,
-        logFilePath,
-        logger -> {
-          // Use utility methods that directly accept providers
-          final List<ResolvedDependency> allowedToUseDeps = getFirstLevelDependencies(allowedToUse);
-          final List<ResolvedDependency> allowedToDeclareDeps =
-              getFirstLevelDependencies(allowedToDeclare);
-          final List<ResolvedDependency> requiredDeps = getFirstLevelDependencies(require);
-          requiredDeps.removeIf(
-              req ->
-                  allowedToUseDeps.stream()
-                      .anyMatch(
-                          allowed -> req.getModule().getId().equals(allowed.getModule().getId())));
-
-          final MultiValuedMap<ComponentIdentifier, File> dependencyArtifacts =
-              findModuleArtifactFiles(requiredDeps);
-          logger.info("dependencyArtifacts", dependencyArtifacts);
-
-          final MultiValuedMap<ComponentIdentifier, File> allDependencyArtifactFiles =
-              findAllModuleArtifactFiles(requiredDeps);
-          logger.info("allDependencyArtifactFiles", allDependencyArtifactFiles);
-
-          final MultiValuedMap<ComponentIdentifier, String> fileClassMap =
-              buildArtifactClassMap(this.logger, artifactClassCache, allDependencyArtifactFiles);
-          logger.info("fileClassMap", fileClassMap);
-
-          final Set<String> dependencyClasses = analyzeClassDependencies();
-          logger.info("dependencyClasses", dependencyClasses);
-
-          final MultiValuedMap<ComponentIdentifier, String> usedClassesInArtifacts =
-              buildUsedArtifacts(fileClassMap, dependencyClasses);
-          logger.info("usedClassesInArtifacts", usedClassesInArtifacts);
-
-          final Set<ComponentIdentifier> usedArtifacts =
-              new HashSet<>(usedClassesInArtifacts.keySet());
-          logger.info("usedArtifacts", usedArtifacts);
-
-          final Set<ComponentIdentifier> usedDeclaredArtifactFiles =
-              new HashSet<>(dependencyArtifacts.keySet());
-          usedDeclaredArtifactFiles.retainAll(usedArtifacts);
-          logger.info("usedDeclaredArtifacts", usedDeclaredArtifactFiles);
-
-          final Set<ComponentIdentifier> usedUndeclaredArtifactFiles = new HashSet<>(usedArtifacts);
-          usedUndeclaredArtifactFiles.removeAll(dependencyArtifacts.keySet());
-          logger.info("usedUndeclaredArtifacts", usedUndeclaredArtifactFiles);
-
-          final Set<ComponentIdentifier> unusedDeclaredArtifactFiles =
-              new HashSet<>(dependencyArtifacts.keySet());
-          unusedDeclaredArtifactFiles.removeAll(usedArtifacts);
-          logger.info("unusedDeclaredArtifacts", unusedDeclaredArtifactFiles);
-
-          final Set<ResolvedArtifact> allowedToUseArtifacts =
-              collectMany(allowedToUseDeps, ResolvedDependency::getModuleArtifacts);
-          logger.info("allowedToUseArtifacts", allowedToUseArtifacts);
-
-          final Set<ComponentIdentifier> allowedToUseComponentIdentifiers =
-              collect(allowedToUseArtifacts, resolvedArtifactToComponentIdentifier);
-          logger.info("allowedToUseComponentIdentifiers", allowedToUseComponentIdentifiers);
-
-          final Set<ResolvedArtifact> allowedToDeclareArtifacts =
-              collectMany(allowedToDeclareDeps, ResolvedDependency::getModuleArtifacts);
-          logger.info("allowedToDeclareArtifacts", allowedToDeclareArtifacts);
-
-          final Set<ComponentIdentifier> allArtifacts =
-              collect(resolveArtifacts(require), resolvedArtifactToComponentIdentifier);
-          logger.info("allArtifacts", allArtifacts);
-
-          final Set<ComponentIdentifier> usedDeclared =
-              findAll(allArtifacts, usedDeclaredArtifactFiles::contains);
-          logger.info("usedDeclared", usedDeclared);
-
-          final Set<ComponentIdentifier> usedUndeclared =
-              findAll(allArtifacts, usedUndeclaredArtifactFiles::contains);
-          logger.info("usedUndeclared", usedUndeclared);
-
-          if (!allowedToUseComponentIdentifiers.isEmpty()) {
-            usedUndeclared.removeIf(allowedToUseComponentIdentifiers::contains);
-            logger.info("usedUndeclared without allowedToUseArtifacts", usedUndeclared);
-          }
-
-          final Set<ComponentIdentifier> unusedDeclared =
-              findAll(allArtifacts, unusedDeclaredArtifactFiles::contains);
-          logger.info("unusedDeclared", unusedDeclared);
-
-          if (!allowedToDeclareArtifacts.isEmpty()) {
-            final Set<ComponentIdentifier> allowedToDeclareComponentIdentifiers =
-                collect(allowedToDeclareArtifacts, resolvedArtifactToComponentIdentifier);
-            unusedDeclared.removeIf(allowedToDeclareComponentIdentifiers::contains);
-            logger.info("unusedDeclared without allowedToDeclareArtifacts", unusedDeclared);
-          }
-
-          final Set<ComponentIdentifier> superfluous = new LinkedHashSet<>();
-
-          final Map<ComponentIdentifier, Set<ComponentIdentifier>> dependencyMap = new HashMap<>();
-          dependencyMap.putAll(aggregatorsWithDependencies);
-          dependencyMap.putAll(pomsWithDependencies);
-
-          if (!dependencyMap.isEmpty()) {
-            final Set<ComponentIdentifier> usedIdentifiers =
-                collect(
-                    collectMany(requiredDeps, ResolvedDependency::getAllModuleArtifacts),
-                    resolvedArtifactToComponentIdentifier);
-
-            usedIdentifiers.addAll(pomsWithDependencies.keySet());
-            usedDeclared.addAll(pomsWithDependencies.keySet());
-            usedArtifacts.addAll(pomsWithDependencies.keySet());
-
-            final Map<Boolean, Map<ComponentIdentifier, Collection<ComponentIdentifier>>>
-                aggregatorUsage =
-                    used(usedIdentifiers, usedArtifacts, dependencyMap, logger).entrySet().stream()
-                        .collect(
-                            Collectors.groupingBy(
-                                o -> o.getValue().isEmpty(),
-                                Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
-            if (aggregatorUsage.containsKey(true)) {
-              final Set<ComponentIdentifier> aggregators = aggregatorUsage.get(true).keySet();
-              superfluous.addAll(SetUtils.intersection(aggregators, usedIdentifiers));
-              superfluous.removeIf(pomsWithDependencies.keySet()::contains);
-            }
-            if (aggregatorUsage.containsKey(false)) {
-              final Set<ComponentIdentifier> aggregators = aggregatorUsage.get(false).keySet();
-              usedDeclared.addAll(SetUtils.intersection(aggregators, unusedDeclared));
-
-              final Set<ComponentIdentifier> aggregatorDependencies =
-                  collectMany(aggregatorUsage.get(false).values(), c -> c);
-              superfluous.addAll(SetUtils.intersection(usedDeclared, aggregatorDependencies));
-
-              superfluous.removeIf(aggregators::contains);
-              unusedDeclared.removeIf(aggregators::contains);
-              collectMany(aggregators, dependencyMap::get).forEach(usedUndeclared::remove);
-
-              final Set<ComponentIdentifier> apiDependencies =
-                  collect(
-                      collectMany(
-                          getFirstLevelDependencies(api),
-                          ResolvedDependency::getAllModuleArtifacts),
-                      resolvedArtifactToComponentIdentifier);
-              unusedDeclared.removeIf(apiDependencies::contains);
-              superfluous.removeIf(apiDependencies::contains);
-
-              final Set<ComponentIdentifier> undeclaredAggregators =
-                  findAll(
-                      aggregators,
-                      componentIdentifier -> !usedDeclared.contains(componentIdentifier));
-              usedUndeclared.addAll(undeclaredAggregators);
-              usedUndeclared.removeIf(
-                  id ->
-                      allowedToUseComponentIdentifiers.contains(id)
-                          && dependencyMap.containsKey(id));
-            }
-          }
-
-          final Map<ComponentIdentifier, List<ResolvedArtifact>> compileOnlyDependencyArtifacts =
-              resolveArtifacts(compileOnly).stream()
-                  .collect(Collectors.groupingBy(resolvedArtifactToComponentIdentifier));
-          logger.info("compileOnlyDependencyArtifacts", compileOnlyDependencyArtifacts);
-
-          final Set<ComponentIdentifier> compileOnlyDependencyModuleIdentifiers =
-              compileOnlyDependencyArtifacts.keySet();
-          usedUndeclared.addAll(
-              findAll(usedDeclared, compileOnlyDependencyModuleIdentifiers::contains));
-          compileOnlyDependencyModuleIdentifiers.forEach(unusedDeclared::remove);
-
-          return new ProjectDependencyAnalysisResult(
-              usedDeclared,
-              usedUndeclared,
-              unusedDeclared,
-              compileOnlyDependencyModuleIdentifiers,
-              superfluous);
-        });
+  ProjectDependencyAnalysisResult analyzeDependencies(
+      final ArtifactClassCache artifactClassCache,
+      final ArtifactClassIndexStore artifactClassIndexStore,
+      final int indexParallelism) {
+    return analyzeDependencies(
+            logger,
+            artifactClassCache,
+            artifactClassIndexStore,
+            indexParallelism,
+            Collections.singletonList(this))
+        .get(0);
   }
 
   /**
-   * Find and analyze all class files to determine which external classes are used.
+   * Analyzes the dependencies of several source sets of a project together. The class references of
+   * each source set are read and its configurations resolved on their own, the artifacts of all of
+   * them are indexed in a single pass, and the dependencies of each source set are then classified
+   * against its own artifacts.
+   *
+   * @param logger the logger of the task, used while indexing
+   * @param artifactClassCache the cache of the class names of indexed artifacts
+   * @param artifactClassIndexStore the store of the class names of indexed artifacts
+   * @param indexParallelism the number of artifacts to index at the same time
+   * @param resolvers the resolvers of the source sets
+   * @return the results of the source sets, in the order of their resolvers
+   */
+  static List<ProjectDependencyAnalysisResult> analyzeDependencies(
+      final Logger logger,
+      final ArtifactClassCache artifactClassCache,
+      final ArtifactClassIndexStore artifactClassIndexStore,
+      final int indexParallelism,
+      final List<ProjectDependencyResolver> resolvers) {
+    final List<AnalyzeDependenciesLogger> loggers = new ArrayList<>();
+    try {
+      for (final ProjectDependencyResolver resolver : resolvers) {
+        loggers.add(
+            AnalyzeDependenciesLogger.open(
+                resolver.logger, resolver.logDependencyInformationToFiles, resolver.logFilePath));
+      }
+
+      final List<ResolvedConfigurations> resolved = new ArrayList<>();
+      final MultiValuedMap<ComponentIdentifier, File> allDependencyArtifactFiles =
+          new LinkedHashSetValuedLinkedHashMap<>();
+      for (int i = 0; i < resolvers.size(); i++) {
+        final ResolvedConfigurations configurations = resolvers.get(i).resolve(loggers.get(i));
+        allDependencyArtifactFiles.putAll(configurations.allDependencyArtifactFiles);
+        resolved.add(configurations);
+      }
+
+      final Map<ComponentIdentifier, ClassNameSet> artifactClassMap =
+          buildArtifactClassMap(
+              logger,
+              artifactClassCache,
+              artifactClassIndexStore,
+              allDependencyArtifactFiles,
+              indexParallelism);
+
+      final List<ProjectDependencyAnalysisResult> results = new ArrayList<>();
+      for (int i = 0; i < resolvers.size(); i++) {
+        results.add(resolvers.get(i).classify(loggers.get(i), resolved.get(i), artifactClassMap));
+      }
+      return results;
+    } finally {
+      loggers.forEach(AnalyzeDependenciesLogger::close);
+    }
+  }
+
+  /** Resolves the configurations, finding the artifacts to index. */
+  private ResolvedConfigurations resolve(final AnalyzeDependenciesLogger logger) {
+    // Use utility methods that directly accept providers
+    final List<ResolvedDependency> allowedToUseDeps = getFirstLevelDependencies(allowedToUse);
+    final List<ResolvedDependency> allowedToDeclareDeps =
+        getFirstLevelDependencies(allowedToDeclare);
+    final List<ResolvedDependency> requiredDeps = getFirstLevelDependencies(require);
+    final Set<ModuleVersionIdentifier> allowedToUseModules =
+        allowedToUseDeps.stream()
+            .map(allowed -> allowed.getModule().getId())
+            .collect(Collectors.toSet());
+    requiredDeps.removeIf(req -> allowedToUseModules.contains(req.getModule().getId()));
+
+    final MultiValuedMap<ComponentIdentifier, File> dependencyArtifacts =
+        findModuleArtifactFiles(requiredDeps);
+    logger.info("dependencyArtifacts", dependencyArtifacts);
+
+    final MultiValuedMap<ComponentIdentifier, File> allDependencyArtifactFiles =
+        indexArtifactsWithTransform
+            ? replaceWithClassLists(findAllModuleArtifactFiles(requiredDeps, transitiveArtifacts))
+            : findAllModuleArtifactFiles(requiredDeps, transitiveArtifacts);
+    logger.info("allDependencyArtifactFiles", allDependencyArtifactFiles);
+
+    return new ResolvedConfigurations(
+        allowedToUseDeps,
+        allowedToDeclareDeps,
+        requiredDeps,
+        dependencyArtifacts,
+        allDependencyArtifactFiles);
+  }
+
+  /** Classifies the dependencies by the classes of their artifacts the code uses. */
+  private ProjectDependencyAnalysisResult classify(
+      final AnalyzeDependenciesLogger logger,
+      final ResolvedConfigurations resolved,
+      final Map<ComponentIdentifier, ClassNameSet> artifactClassMap) {
+    final List<ResolvedDependency> allowedToUseDeps = resolved.allowedToUseDeps;
+    final List<ResolvedDependency> allowedToDeclareDeps = resolved.allowedToDeclareDeps;
+    final List<ResolvedDependency> requiredDeps = resolved.requiredDeps;
+    final MultiValuedMap<ComponentIdentifier, File> dependencyArtifacts =
+        resolved.dependencyArtifacts;
+
+    // the map may hold the artifacts of other source sets indexed in the same pass
+    final Map<ComponentIdentifier, ClassNameSet> fileClassMap = new LinkedHashMap<>();
+    for (final ComponentIdentifier identifier : resolved.allDependencyArtifactFiles.keySet()) {
+      final ClassNameSet classes = artifactClassMap.get(identifier);
+      if (classes != null) {
+        fileClassMap.put(identifier, classes);
+      }
+    }
+    logger.info("fileClassMap", fileClassMap);
+
+    final Set<String> dependencyClasses = analyzeClassDependencies();
+    logger.info("dependencyClasses", dependencyClasses);
+
+    final MultiValuedMap<ComponentIdentifier, String> usedClassesInArtifacts =
+        buildUsedArtifacts(fileClassMap, dependencyClasses);
+    logger.info("usedClassesInArtifacts", usedClassesInArtifacts);
+
+    // the classification works on numbers of the identifiers instead of hashing them for every step
+    final ComponentIdentifierIndex index = new ComponentIdentifierIndex();
+
+    final BitSet usedArtifacts = index.ids(usedClassesInArtifacts.keySet());
+    logger.info("usedArtifacts", index.view(usedArtifacts));
+
+    final BitSet declaredArtifacts = index.ids(dependencyArtifacts.keySet());
+
+    final BitSet usedDeclaredArtifactFiles = and(declaredArtifacts, usedArtifacts);
+    logger.info("usedDeclaredArtifacts", index.view(usedDeclaredArtifactFiles));
+
+    final BitSet usedUndeclaredArtifactFiles = andNot(usedArtifacts, declaredArtifacts);
+    logger.info("usedUndeclaredArtifacts", index.view(usedUndeclaredArtifactFiles));
+
+    final BitSet unusedDeclaredArtifactFiles = andNot(declaredArtifacts, usedArtifacts);
+    logger.info("unusedDeclaredArtifacts", index.view(unusedDeclaredArtifactFiles));
+
+    final Set<ResolvedArtifact> allowedToUseArtifacts =
+        collectMany(allowedToUseDeps, ResolvedDependency::getModuleArtifacts);
+    logger.info("allowedToUseArtifacts", allowedToUseArtifacts);
+
+    final BitSet allowedToUseComponentIdentifiers = index.artifactIds(allowedToUseArtifacts);
+    logger.info("allowedToUseComponentIdentifiers", index.view(allowedToUseComponentIdentifiers));
+
+    final Set<ResolvedArtifact> allowedToDeclareArtifacts =
+        collectMany(allowedToDeclareDeps, ResolvedDependency::getModuleArtifacts);
+    logger.info("allowedToDeclareArtifacts", allowedToDeclareArtifacts);
+
+    final BitSet allArtifacts = index.artifactIds(resolveArtifacts(require, transitiveArtifacts));
+    logger.info("allArtifacts", index.view(allArtifacts));
+
+    final BitSet usedDeclared = and(allArtifacts, usedDeclaredArtifactFiles);
+    logger.info("usedDeclared", index.view(usedDeclared));
+
+    final BitSet usedUndeclared = and(allArtifacts, usedUndeclaredArtifactFiles);
+    logger.info("usedUndeclared", index.view(usedUndeclared));
+
+    if (!allowedToUseComponentIdentifiers.isEmpty()) {
+      usedUndeclared.andNot(allowedToUseComponentIdentifiers);
+      logger.info("usedUndeclared without allowedToUseArtifacts", index.view(usedUndeclared));
+    }
+
+    final BitSet unusedDeclared = and(allArtifacts, unusedDeclaredArtifactFiles);
+    logger.info("unusedDeclared", index.view(unusedDeclared));
+
+    if (!allowedToDeclareArtifacts.isEmpty()) {
+      unusedDeclared.andNot(index.artifactIds(allowedToDeclareArtifacts));
+      logger.info("unusedDeclared without allowedToDeclareArtifacts", index.view(unusedDeclared));
+    }
+
+    final BitSet superfluous = new BitSet();
+
+    final Map<ComponentIdentifier, Set<ComponentIdentifier>> dependencyMap = new HashMap<>();
+    dependencyMap.putAll(aggregatorsWithDependencies);
+    dependencyMap.putAll(pomsWithDependencies);
+
+    if (!dependencyMap.isEmpty()) {
+      final BitSet usedIdentifiers = index.artifactIds(transitiveArtifacts.of(requiredDeps));
+
+      final BitSet poms = index.ids(pomsWithDependencies.keySet());
+      usedIdentifiers.or(poms);
+      usedDeclared.or(poms);
+      usedArtifacts.or(poms);
+
+      final Map<Boolean, Map<ComponentIdentifier, Collection<ComponentIdentifier>>>
+          aggregatorUsage =
+              used(index.view(usedIdentifiers), index.view(usedArtifacts), dependencyMap, logger)
+                  .entrySet()
+                  .stream()
+                  .collect(
+                      Collectors.groupingBy(
+                          o -> o.getValue().isEmpty(),
+                          Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+      if (aggregatorUsage.containsKey(true)) {
+        final BitSet aggregators = index.ids(aggregatorUsage.get(true).keySet());
+        superfluous.or(and(aggregators, usedIdentifiers));
+        superfluous.andNot(poms);
+      }
+      if (aggregatorUsage.containsKey(false)) {
+        final BitSet aggregators = index.ids(aggregatorUsage.get(false).keySet());
+        usedDeclared.or(and(aggregators, unusedDeclared));
+
+        final BitSet aggregatorDependencies = new BitSet();
+        aggregatorUsage
+            .get(false)
+            .values()
+            .forEach(dependencies -> aggregatorDependencies.or(index.ids(dependencies)));
+        superfluous.or(and(usedDeclared, aggregatorDependencies));
+
+        superfluous.andNot(aggregators);
+        unusedDeclared.andNot(aggregators);
+        aggregatorUsage
+            .get(false)
+            .keySet()
+            .forEach(aggregator -> usedUndeclared.andNot(index.ids(dependencyMap.get(aggregator))));
+
+        final BitSet apiDependencies =
+            index.artifactIds(transitiveArtifacts.of(getFirstLevelDependencies(api)));
+        unusedDeclared.andNot(apiDependencies);
+        superfluous.andNot(apiDependencies);
+
+        final BitSet undeclaredAggregators = andNot(aggregators, usedDeclared);
+        usedUndeclared.or(undeclaredAggregators);
+        usedUndeclared.andNot(
+            and(allowedToUseComponentIdentifiers, index.ids(dependencyMap.keySet())));
+      }
+    }
+
+    final Map<ComponentIdentifier, List<ResolvedArtifact>> compileOnlyDependencyArtifacts =
+        resolveArtifacts(compileOnly, transitiveArtifacts).stream()
+            .collect(Collectors.groupingBy(resolvedArtifactToComponentIdentifier));
+    logger.info("compileOnlyDependencyArtifacts", compileOnlyDependencyArtifacts);
+
+    final Set<ComponentIdentifier> compileOnlyDependencyModuleIdentifiers =
+        compileOnlyDependencyArtifacts.keySet();
+    final BitSet compileOnlyIdentifiers = index.ids(compileOnlyDependencyModuleIdentifiers);
+    usedUndeclared.or(and(usedDeclared, compileOnlyIdentifiers));
+    unusedDeclared.andNot(compileOnlyIdentifiers);
+
+    return new ProjectDependencyAnalysisResult(
+        index.identifiers(usedDeclared),
+        index.identifiers(usedUndeclared),
+        index.identifiers(unusedDeclared),
+        compileOnlyDependencyModuleIdentifiers,
+        index.identifiers(superfluous));
+  }
+
+  /** The dependencies of the configurations of a source set, and the artifacts to index. */
+  private static final class ResolvedConfigurations {
+    private final List<ResolvedDependency> allowedToUseDeps;
+    private final List<ResolvedDependency> allowedToDeclareDeps;
+    private final List<ResolvedDependency> requiredDeps;
+    private final MultiValuedMap<ComponentIdentifier, File> dependencyArtifacts;
+    private final MultiValuedMap<ComponentIdentifier, File> allDependencyArtifactFiles;
+
+    private ResolvedConfigurations(
+        final List<ResolvedDependency> allowedToUseDeps,
+        final List<ResolvedDependency> allowedToDeclareDeps,
+        final List<ResolvedDependency> requiredDeps,
+        final MultiValuedMap<ComponentIdentifier, File> dependencyArtifacts,
+        final MultiValuedMap<ComponentIdentifier, File> allDependencyArtifactFiles) {
+      this.allowedToUseDeps = allowedToUseDeps;
+      this.allowedToDeclareDeps = allowedToDeclareDeps;
+      this.requiredDeps = requiredDeps;
+      this.dependencyArtifacts = dependencyArtifacts;
+      this.allDependencyArtifactFiles = allDependencyArtifactFiles;
+    }
+  }
+
+  /**
+   * Replaces the artifact files by the class lists produced by the artifact transform. Components
+   * with artifacts the transform does not apply to keep their files, which are indexed directly.
+   */
+  private MultiValuedMap<ComponentIdentifier, File> replaceWithClassLists(
+      final MultiValuedMap<ComponentIdentifier, File> artifactFiles) {
+    final Set<ComponentIdentifier> transformable =
+        artifactFiles.keySet().stream()
+            .filter(
+                identifier ->
+                    artifactFiles.get(identifier).stream()
+                        .allMatch(ArtifactClassListTransform::isTransformable))
+            .collect(Collectors.toSet());
+    final MultiValuedMap<ComponentIdentifier, File> classLists =
+        ArtifactClassListTransform.resolveClassLists(require, transformable);
+    final MultiValuedMap<ComponentIdentifier, File> result =
+        new LinkedHashSetValuedLinkedHashMap<>();
+    for (final ComponentIdentifier identifier : artifactFiles.keySet()) {
+      final Collection<File> identifierClassLists = classLists.get(identifier);
+      result.putAll(
+          identifier,
+          identifierClassLists.isEmpty() ? artifactFiles.get(identifier) : identifierClassLists);
+    }
+    return result;
+  }
+
+  /**
+   * Reads the classes referenced by the analyzed code, extracted from its class files by {@link
+   * ExtractClassReferencesTask}.
    *
    * @return a Set of class names
    */
   private Set<String> analyzeClassDependencies() {
-    return collectMany(classesDirs, file -> dependencyAnalyzer.analyze(file.toURI().toURL()));
+    try {
+      return ClassReferenceExtractor.read(classReferenceFiles);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 }
@@ -0,0 +1,90 @@
+package ca.cutterslade.gradle.analyze;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+
+/**
+ * The configurations the plugin sets on the analyze task of a source set, and the file its extract
+ * task writes the class references of the source set to. The tasks analyzing several source sets
+ * take them from here, so configuring them does not realize the analyze tasks.
+ */
+final class SourceSetConfigurations {
+  private final List<Provider<Configuration>> require;
+  private final List<Provider<Configuration>> compileOnly;
+  private final List<Provider<Configuration>> apiHelperConfiguration;
+  private final List<Provider<Configuration>> allowedToUse;
+  private final List<Provider<Configuration>> allowedToDeclare;
+  private final List<Provider<Configuration>> allowedAggregatorsToUse;
+  private final Provider<RegularFile> classReferences;
+
+  SourceSetConfigurations(
+      final List<Provider<Configuration>> require,
+      final List<Provider<Configuration>> compileOnly,
+      final List<Provider<Configuration>> apiHelperConfiguration,
+      final List<Provider<Configuration>> allowedToUse,
+      final List<Provider<Configuration>> allowedToDeclare,
+      final List<Provider<Configuration>> allowedAggregatorsToUse,
+      final Provider<RegularFile> classReferences) {
+    this.require = require;
+    this.compileOnly = compileOnly;
+    this.apiHelperConfiguration = apiHelperConfiguration;
+    this.allowedToUse = allowedToUse;
+    this.allowedToDeclare = allowedToDeclare;
+    this.allowedAggregatorsToUse = allowedAggregatorsToUse;
+    this.classReferences = classReferences;
+  }
+
+  /** Sets the configurations and the class references on the analyze task of the source set. */
+  void configure(final AnalyzeDependenciesTask task) {
+    task.setRequire(require);
+    task.setCompileOnly(compileOnly);
+    task.setApiHelperConfiguration(apiHelperConfiguration);
+    task.setAllowedToUse(allowedToUse);
+    task.setAllowedToDeclare(allowedToDeclare);
+    task.setAllowedAggregatorsToUse(allowedAggregatorsToUse);
+    task.getClassReferenceFiles().from(classReferences);
+  }
+
+  List<Provider<Configuration>> getRequire() {
+    return require;
+  }
+
+  List<Provider<Configuration>> getCompileOnly() {
+    return compileOnly;
+  }
+
+  List<Provider<Configuration>> getApiHelperConfiguration() {
+    return apiHelperConfiguration;
+  }
+
+  List<Provider<Configuration>> getAllowedToUse() {
+    return allowedToUse;
+  }
+
+  List<Provider<Configuration>> getAllowedToDeclare() {
+    return allowedToDeclare;
+  }
+
+  List<Provider<Configuration>> getAllowedAggregatorsToUse() {
+    return allowedAggregatorsToUse;
+  }
+
+  /** Returns all configurations, in the order of the getters. */
+  List<Provider<Configuration>> getAll() {
+    final List<Provider<Configuration>> all = new ArrayList<>();
+    all.addAll(require);
+    all.addAll(compileOnly);
+    all.addAll(apiHelperConfiguration);
+    all.addAll(allowedToUse);
+    all.addAll(allowedToDeclare);
+    all.addAll(allowedAggregatorsToUse);
+    return all;
+  }
+
+  Provider<RegularFile> getClassReferences() {
+    return classReferences;
+  }
+}
@@ -0,0 +1,75 @@
+package ca.cutterslade.gradle.analyze.javac;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File holding the classes referenced by each top level class of a compilation, written by the
+ * {@link ReferenceRecordingPlugin}. Each line holds the binary name of a top level class followed
+ * by the names of the classes it references, separated by spaces. The entry of a top level class
+ * covers its nested, local and anonymous classes too.
+ *
+ * <p>The file is rewritten by every compilation, so after an incremental compilation it only holds
+ * the classes compiled last; the other classes have to be analyzed from their class files.
+ */
+public final class RecordedReferences {
+  private RecordedReferences() {}
+
+  static BufferedWriter create(final Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+  }
+
+  static void append(
+      final BufferedWriter writer, final String className, final Collection<String> references)
+      throws IOException {
+    writer.write(className);
+    for (final String reference : references) {
+      writer.write(' ');
+      writer.write(reference);
+    }
+    writer.newLine();
+  }
+
+  /**
+   * Reads the references recorded for the classes of a compilation.
+   *
+   * @param file the file written by the javac plugin
+   * @return the referenced class names of each top level class
+   * @throws IOException if the file cannot be read
+   */
+  public static Map<String, List<String>> read(final Path file) throws IOException {
+    final Map<String, List<String>> references = new HashMap<>();
+    try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          final List<String> names = Arrays.asList(line.split(" "));
+          references.put(names.get(0), new ArrayList<>(names.subList(1, names.size())));
+        }
+      }
+    }
+    return references;
+  }
+
+  /**
+   * Returns the name of the top level class whose entry covers a class.
+   *
+   * @param className the binary name of a class
+   * @return the binary name of the top level class containing it
+   */
+  public static String topLevelClassName(final String className) {
+    final int nested = className.indexOf('$', className.lastIndexOf('.') + 1);
+    return nested < 0 ? className : className.substring(0, nested);
+  }
+}
@@ -0,0 +1,114 @@
+package ca.cutterslade.gradle.analyze.javac;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Javac plugin recording the classes referenced by each compiled class as a by-product of the
+ * compilation, so that the analyze task does not have to read the class files again. The only
+ * argument is the URI of the file to write, see {@link RecordedReferences}. The file is kept open
+ * during the compilation and closed once it finishes, or on Java 8, which has no event for the end
+ * of the compilation, once every top level class has been analyzed.
+ *
+ * <p>The plugin only depends on the JDK, it is loaded by javac from the annotation processor path.
+ */
+public final class ReferenceRecordingPlugin implements Plugin {
+  public static final String NAME = "DependencyAnalyzeReferences";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void init(final JavacTask task, final String... args) {
+    if (args.length != 1) {
+      throw new IllegalArgumentException(NAME + " expects the URI of its output file");
+    }
+    final Path file = Paths.get(URI.create(args[0]));
+    final BufferedWriter writer;
+    try {
+      writer = RecordedReferences.create(file);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    final Trees trees = Trees.instance(task);
+    final boolean java9 = SourceVersion.latest().compareTo(SourceVersion.RELEASE_8) > 0;
+    task.addTaskListener(
+        new TaskListener() {
+          // top level classes entered but not analyzed yet, to close the file on Java 8; a set as
+          // annotation processing rounds enter the compilation units again
+          private final Set<String> pending = new HashSet<>();
+          private boolean closed;
+
+          @Override
+          public void started(final TaskEvent event) {}
+
+          @Override
+          public void finished(final TaskEvent event) {
+            try {
+              if (event.getKind() == TaskEvent.Kind.ENTER && !java9) {
+                entered(event.getCompilationUnit());
+              } else if (event.getKind() == TaskEvent.Kind.ANALYZE
+                  && event.getTypeElement() != null) {
+                analyzed(event.getTypeElement());
+              } else if ("COMPILATION".equals(event.getKind().name())) {
+                // only part of the API from Java 9 on
+                close();
+              }
+            } catch (final IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }
+
+          private void entered(final CompilationUnitTree unit) {
+            final String packagePrefix =
+                unit.getPackageName() == null ? "" : unit.getPackageName() + ".";
+            for (final Tree declaration : unit.getTypeDecls()) {
+              if (declaration instanceof ClassTree) {
+                pending.add(packagePrefix + ((ClassTree) declaration).getSimpleName());
+              }
+            }
+          }
+
+          private void analyzed(final TypeElement type) throws IOException {
+            final TreePath path = trees.getPath(type);
+            if (path != null && !closed) {
+              RecordedReferences.append(
+                  writer,
+                  task.getElements().getBinaryName(type).toString(),
+                  new ReferenceScanner(trees, task.getTypes(), task.getElements(), java9)
+                      .referencedClasses(path));
+            }
+            pending.remove(type.getQualifiedName().toString());
+            if (!java9 && pending.isEmpty()) {
+              close();
+            }
+          }
+
+          private void close() throws IOException {
+            if (!closed) {
+              closed = true;
+              writer.close();
+            }
+          }
+        });
+  }
+}
@@ -0,0 +1,202 @@
+package ca.cutterslade.gradle.analyze.javac;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.UnionType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Collects the classes an attributed class tree refers to, approximating what ends up in the class
+ * files compiled from it: the owners and erased signatures of the members it uses, the erased types
+ * of its variables and all types named in it. Annotations kept in the source only are skipped, as
+ * javac leaves no trace of them in the class file. Constants are inlined, only javac 9 and later
+ * keep the class declaring them in the constant pool.
+ */
+final class ReferenceScanner extends TreePathScanner<Void, Void> {
+  private final Trees trees;
+  private final Types types;
+  private final Elements elements;
+  private final boolean constantOwners;
+  private final Set<String> references = new TreeSet<>();
+
+  ReferenceScanner(
+      final Trees trees, final Types types, final Elements elements, final boolean constantOwners) {
+    this.trees = trees;
+    this.types = types;
+    this.elements = elements;
+    this.constantOwners = constantOwners;
+  }
+
+  Set<String> referencedClasses(final TreePath classPath) {
+    scan(classPath, null);
+    return references;
+  }
+
+  @Override
+  public Void visitIdentifier(final IdentifierTree node, final Void unused) {
+    final Element element = trees.getElement(getCurrentPath());
+    if (element != null && isConstant(element)) {
+      addConstantOwner(element);
+    } else if (element != null) {
+      addElement(element, null);
+    }
+    return super.visitIdentifier(node, unused);
+  }
+
+  @Override
+  public Void visitMemberSelect(final MemberSelectTree node, final Void unused) {
+    final Element element = trees.getElement(getCurrentPath());
+    final TreePath qualifier = new TreePath(getCurrentPath(), node.getExpression());
+    if (element != null && isConstant(element)) {
+      addConstantOwner(element);
+      final Element qualifierElement = trees.getElement(qualifier);
+      if (qualifierElement instanceof TypeElement || qualifierElement instanceof PackageElement) {
+        return null;
+      }
+    } else if (element != null) {
+      addElement(element, qualifier);
+    }
+    return super.visitMemberSelect(node, unused);
+  }
+
+  @Override
+  public Void visitMemberReference(final MemberReferenceTree node, final Void unused) {
+    final Element element = trees.getElement(getCurrentPath());
+    if (element != null) {
+      addElement(element, new TreePath(getCurrentPath(), node.getQualifierExpression()));
+    }
+    return super.visitMemberReference(node, unused);
+  }
+
+  @Override
+  public Void visitNewClass(final NewClassTree node, final Void unused) {
+    final Element constructor = trees.getElement(getCurrentPath());
+    if (constructor instanceof ExecutableElement) {
+      addSignature((ExecutableElement) constructor);
+    }
+    return super.visitNewClass(node, unused);
+  }
+
+  @Override
+  public Void visitVariable(final VariableTree node, final Void unused) {
+    final Element variable = trees.getElement(getCurrentPath());
+    if (variable != null) {
+      addType(variable.asType());
+    }
+    return super.visitVariable(node, unused);
+  }
+
+  @Override
+  public Void visitAnnotation(final AnnotationTree node, final Void unused) {
+    final Element annotation =
+        trees.getElement(new TreePath(getCurrentPath(), node.getAnnotationType()));
+    final Retention retention =
+        annotation == null ? null : annotation.getAnnotation(Retention.class);
+    if (retention != null && retention.value() == RetentionPolicy.SOURCE) {
+      return null;
+    }
+    return super.visitAnnotation(node, unused);
+  }
+
+  private static boolean isConstant(final Element element) {
+    return element instanceof VariableElement
+        && ((VariableElement) element).getConstantValue() != null;
+  }
+
+  private void addConstantOwner(final Element constant) {
+    if (constantOwners && constant.getEnclosingElement() instanceof TypeElement) {
+      addClass((TypeElement) constant.getEnclosingElement());
+    }
+  }
+
+  private void addElement(final Element element, final TreePath qualifier) {
+    if (element instanceof TypeElement) {
+      addClass((TypeElement) element);
+    } else if (element.getKind().isField() || element instanceof ExecutableElement) {
+      addOwner(element, qualifier);
+      if (element instanceof ExecutableElement) {
+        addSignature((ExecutableElement) element);
+      }
+    }
+  }
+
+  // javac uses the type of the qualifier as owner of a member, not the class declaring it
+  private void addOwner(final Element member, final TreePath qualifier) {
+    if (qualifier != null) {
+      final TypeMirror type = trees.getTypeMirror(qualifier);
+      if (type != null && type.getKind() != TypeKind.PACKAGE) {
+        addType(type);
+        return;
+      }
+    }
+    if (member.getEnclosingElement() instanceof TypeElement) {
+      addClass((TypeElement) member.getEnclosingElement());
+    }
+  }
+
+  private void addSignature(final ExecutableElement method) {
+    addType(method.getReturnType());
+    for (final VariableElement parameter : method.getParameters()) {
+      addType(parameter.asType());
+    }
+  }
+
+  private void addType(final TypeMirror type) {
+    switch (type.getKind()) {
+      case DECLARED:
+        addClass((TypeElement) ((DeclaredType) type).asElement());
+        break;
+      case ARRAY:
+        addType(((ArrayType) type).getComponentType());
+        break;
+      case TYPEVAR:
+      case INTERSECTION:
+        addType(types.erasure(type));
+        break;
+      case UNION:
+        for (final TypeMirror alternative : ((UnionType) type).getAlternatives()) {
+          addType(alternative);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  // nested classes are reported by their top level class, like the ASM based analysis does
+  private void addClass(final TypeElement type) {
+    Element topLevel = type;
+    while (topLevel.getEnclosingElement() != null
+        && topLevel.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+      topLevel = topLevel.getEnclosingElement();
+    }
+    if (topLevel instanceof TypeElement) {
+      final String name = elements.getBinaryName((TypeElement) topLevel).toString();
+      if (name.indexOf('$') < 0) {
+        references.add(name);
+      }
+    }
+  }
+}
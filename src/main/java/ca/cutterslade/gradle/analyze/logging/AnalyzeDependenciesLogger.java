@@ -8,24 +8,31 @@ import java.util.function.Function;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.gradle.api.logging.Logger;
 
-public abstract class AnalyzeDependenciesLogger {
+public abstract class AnalyzeDependenciesLogger implements AutoCloseable {
   public static ProjectDependencyAnalysisResult create(
       final Logger gradleLogger,
       final boolean logDependencyInformationToFiles,
       final Path logFilePath,
       final Function<AnalyzeDependenciesLogger, ProjectDependencyAnalysisResult> withLogger) {
-    if (logDependencyInformationToFiles) {
-      try (final AnalyzeDependenciesFileLogger logger =
-          new AnalyzeDependenciesFileLogger(logFilePath)) {
-        return withLogger.apply(logger);
-      }
-    } else {
-      final AnalyzeDependenciesStandardLogger logger =
-          new AnalyzeDependenciesStandardLogger(gradleLogger);
+    try (final AnalyzeDependenciesLogger logger =
+        open(gradleLogger, logDependencyInformationToFiles, logFilePath)) {
       return withLogger.apply(logger);
     }
   }
 
+  /** Opens the logger of an analysis, which has to be closed once the analysis is done. */
+  public static AnalyzeDependenciesLogger open(
+      final Logger gradleLogger,
+      final boolean logDependencyInformationToFiles,
+      final Path logFilePath) {
+    return logDependencyInformationToFiles
+        ? new AnalyzeDependenciesFileLogger(logFilePath)
+        : new AnalyzeDependenciesStandardLogger(gradleLogger);
+  }
+
+  @Override
+  public void close() {}
+
   public abstract void info(String title);
 
   public abstract void info(String title, Collection<?> files);
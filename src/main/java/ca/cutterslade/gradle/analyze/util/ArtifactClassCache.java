@@ -0,0 +1,156 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory cache for the classes contained in artifact files, shared by all analyze tasks of a
+ * build. The extract tasks keep the classes of the JDK in it, keyed by its class library.
+ *
+ * <p>Tasks running in parallel may ask for the same artifact at the same time. The first of them
+ * reserves the entry and indexes the artifact, the others wait for that result instead of indexing
+ * the artifact again. Looking up an artifact which has already been indexed never blocks.
+ *
+ * <p>The cache may be bounded by the total number of class names it holds. Once the bound is
+ * exceeded, the least recently used artifacts are evicted and indexed again when they are needed
+ * the next time. Keeping track of the usage order briefly locks on each lookup of a bounded cache.
+ */
+public final class ArtifactClassCache {
+  private final ConcurrentMap<File, CompletableFuture<ClassNameSet>> entries =
+      new ConcurrentHashMap<>();
+  private final int maxClasses;
+  // number of classes of each completed entry in access order, only used when bounded
+  private final LinkedHashMap<File, Integer> completed = new LinkedHashMap<>(16, 0.75f, true);
+  private long classes;
+  private long evictions;
+
+  /** Creates an unbounded cache. */
+  public ArtifactClassCache() {
+    this(0);
+  }
+
+  /**
+   * Creates a cache bounded by the number of class names it holds.
+   *
+   * @param maxClasses maximum number of class names, 0 for an unbounded cache
+   */
+  public ArtifactClassCache(final int maxClasses) {
+    this.maxClasses = maxClasses;
+  }
+
+  /**
+   * Looks up the entry of a file, reserving it for the caller if there is none yet. A caller
+   * holding a reservation must eventually call either {@link #complete} or {@link #fail} for the
+   * file.
+   *
+   * @param file the artifact file
+   * @return the completed or pending entry of another caller, or null if the caller now holds the
+   *     reservation
+   */
+  public CompletableFuture<ClassNameSet> lookupOrReserve(final File file) {
+    final CompletableFuture<ClassNameSet> existing = entries.get(file);
+    if (existing != null) {
+      if (maxClasses > 0) {
+        synchronized (completed) {
+          completed.get(file);
+        }
+      }
+      return existing;
+    }
+    return entries.putIfAbsent(file, new CompletableFuture<>());
+  }
+
+  /**
+   * Completes a reserved entry.
+   *
+   * @param file the artifact file
+   * @param classes the class names contained in the file
+   */
+  public void complete(final File file, final ClassNameSet classes) {
+    entries.get(file).complete(classes);
+    if (maxClasses > 0) {
+      synchronized (completed) {
+        completed.put(file, classes.size());
+        this.classes += classes.size();
+        evict();
+      }
+    }
+  }
+
+  private void evict() {
+    final Iterator<Map.Entry<File, Integer>> iterator = completed.entrySet().iterator();
+    while (classes > maxClasses && iterator.hasNext()) {
+      final Map.Entry<File, Integer> eldest = iterator.next();
+      iterator.remove();
+      entries.remove(eldest.getKey());
+      classes -= eldest.getValue();
+      evictions++;
+    }
+  }
+
+  /**
+   * Fails a reserved entry unless it has already been completed. The entry is removed, so the file
+   * is indexed again the next time it is looked up, and callers waiting for it see the failure.
+   *
+   * @param file the artifact file
+   * @param failure the reason the file could not be indexed
+   */
+  public void fail(final File file, final Throwable failure) {
+    final CompletableFuture<ClassNameSet> entry = entries.get(file);
+    if (entry != null && !entry.isDone() && entries.remove(file, entry)) {
+      entry.completeExceptionally(failure);
+    }
+  }
+
+  /**
+   * Waits for an entry to be completed.
+   *
+   * @param entry the entry returned by {@link #lookupOrReserve}
+   * @return the class names contained in the file
+   */
+  public static ClassNameSet await(final CompletableFuture<ClassNameSet> entry) {
+    try {
+      return entry.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** Removes all entries from the cache. */
+  public void clear() {
+    synchronized (completed) {
+      entries.clear();
+      completed.clear();
+      classes = 0;
+    }
+  }
+
+  /**
+   * Returns the number of files in the cache, including those still being indexed.
+   *
+   * @return the number of files
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of files evicted from the cache to stay within its bound.
+   *
+   * @return the number of evicted files
+   */
+  public long evictions() {
+    synchronized (completed) {
+      return evictions;
+    }
+  }
+}
@@ -0,0 +1,270 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Persistent store for the classes contained in artifact files, shared by all builds using the same
+ * Gradle user home.
+ *
+ * <p>Entries are keyed by the absolute path, size and last modified time of the artifact file, so a
+ * changed file never matches a stale entry. Only files located below the Gradle user home are
+ * stored, as these are the immutable artifacts of the dependency cache; project outputs change from
+ * build to build and would only fill up the store.
+ *
+ * <p>Each entry is written to a temporary file first and then moved into place, so concurrent
+ * Gradle processes on the same machine either see a complete entry or none at all. Failing to read
+ * or write an entry is never fatal, the artifact is just indexed again.
+ *
+ * <p>Like the caches of Gradle itself, entries not used for {@value #RETENTION_DAYS} days are
+ * deleted, together with the stores of other format versions. Reading an entry marks it as used by
+ * its modification time, and the cleanup runs at most once a day per store, checked the first time
+ * a Gradle daemon uses the store.
+ */
+public final class ArtifactClassIndexStore {
+  private static final String STORE_ROOT = "caches/dependency-analyze/artifact-class-index";
+  private static final String STORE_VERSION = "v1";
+  private static final String ENTRY_SUFFIX = ".classes";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final String CLEANUP_MARKER = "cleanup";
+  static final int RETENTION_DAYS = 30;
+  private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(RETENTION_DAYS);
+  private static final long CLEANUP_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+  private static final Set<Path> CHECKED_STORES = ConcurrentHashMap.newKeySet();
+
+  private final Path storeDirectory;
+  private final Path artifactRoot;
+  private final Logger logger;
+
+  public ArtifactClassIndexStore(
+      final Path storeDirectory, final Path artifactRoot, final Logger logger) {
+    this.storeDirectory = storeDirectory;
+    this.artifactRoot = artifactRoot.toAbsolutePath().normalize();
+    this.logger = logger;
+  }
+
+  /**
+   * Creates a store located in and covering the artifacts of the given Gradle user home.
+   *
+   * @param gradleUserHome the Gradle user home directory
+   * @param logger logger
+   * @return the store
+   */
+  public static ArtifactClassIndexStore inGradleUserHome(
+      final File gradleUserHome, final Logger logger) {
+    final Path home = gradleUserHome.toPath();
+    final Path storeRoot = home.resolve(STORE_ROOT);
+    final ArtifactClassIndexStore store =
+        new ArtifactClassIndexStore(storeRoot.resolve(STORE_VERSION), home, logger);
+    if (CHECKED_STORES.add(store.storeDirectory)) {
+      store.cleanUpIfDue(storeRoot, System.currentTimeMillis());
+    }
+    return store;
+  }
+
+  /**
+   * Checks if the classes of the given file may be kept in this store.
+   *
+   * @param file the artifact file
+   * @return true if the file is an archive located below the artifact root
+   */
+  public boolean accepts(final File file) {
+    return file.isFile() && file.toPath().toAbsolutePath().normalize().startsWith(artifactRoot);
+  }
+
+  /**
+   * Loads the classes of an artifact file from the store.
+   *
+   * @param file the artifact file
+   * @return the class names or null if the store has no entry for the current state of the file
+   */
+  public Set<String> load(final File file) {
+    try {
+      final String key = key(file);
+      final Path entryPath = entryPath(key);
+      final List<String> lines = Files.readAllLines(entryPath, StandardCharsets.UTF_8);
+      final Iterator<String> iterator = lines.iterator();
+      if (!iterator.hasNext() || !key.equals(iterator.next())) {
+        return null;
+      }
+      final Set<String> classes = new LinkedHashSet<>();
+      iterator.forEachRemaining(classes::add);
+      markUsed(entryPath);
+      return classes;
+    } catch (final NoSuchFileException e) {
+      return null;
+    } catch (final IOException | RuntimeException e) {
+      logger.debug("Unable to read artifact class index entry for {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the classes of an artifact file.
+   *
+   * @param file the artifact file
+   * @param classes the class names contained in the file
+   */
+  public void store(final File file, final Set<String> classes) {
+    Path temporaryFile = null;
+    try {
+      final String key = key(file);
+      final Path entryPath = entryPath(key);
+      Files.createDirectories(entryPath.getParent());
+      temporaryFile = Files.createTempFile(entryPath.getParent(), "entry", TEMPORARY_SUFFIX);
+      try (final Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+        writer.write(key);
+        writer.write('\n');
+        for (final String className : classes) {
+          writer.write(className);
+          writer.write('\n');
+        }
+      }
+      try {
+        Files.move(temporaryFile, entryPath, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile, entryPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (final IOException | RuntimeException e) {
+      logger.debug("Unable to write artifact class index entry for {}", file, e);
+    } finally {
+      if (temporaryFile != null) {
+        try {
+          Files.deleteIfExists(temporaryFile);
+        } catch (final IOException e) {
+          logger.debug("Unable to delete temporary file {}", temporaryFile, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes the entries not used since the given time and left over temporary files.
+   *
+   * @param unusedSince the time in milliseconds before which entries have last been used
+   * @return the number of deleted entries
+   * @throws IOException if the store cannot be read
+   */
+  public int cleanUp(final long unusedSince) throws IOException {
+    if (!Files.isDirectory(storeDirectory)) {
+      return 0;
+    }
+    int deleted = 0;
+    for (final Path bucket : list(storeDirectory)) {
+      if (!Files.isDirectory(bucket)) {
+        continue;
+      }
+      for (final Path file : list(bucket)) {
+        final String name = file.getFileName().toString();
+        if ((name.endsWith(ENTRY_SUFFIX) || name.endsWith(TEMPORARY_SUFFIX))
+            && Files.getLastModifiedTime(file).toMillis() < unusedSince
+            && Files.deleteIfExists(file)
+            && name.endsWith(ENTRY_SUFFIX)) {
+          deleted++;
+        }
+      }
+      try {
+        Files.delete(bucket);
+      } catch (final IOException e) {
+        // the bucket still holds entries
+      }
+    }
+    return deleted;
+  }
+
+  private void cleanUpIfDue(final Path storeRoot, final long now) {
+    final Path marker = storeDirectory.resolve(CLEANUP_MARKER);
+    try {
+      if (Files.isRegularFile(marker)
+          && now - Files.getLastModifiedTime(marker).toMillis() < CLEANUP_INTERVAL_MILLIS) {
+        return;
+      }
+      Files.createDirectories(storeDirectory);
+      if (!Files.exists(marker)) {
+        Files.createFile(marker);
+      }
+      // claimed before the cleanup, so concurrent Gradle processes do not run it as well
+      Files.setLastModifiedTime(marker, FileTime.fromMillis(now));
+      for (final Path version : list(storeRoot)) {
+        if (!version.equals(storeDirectory)) {
+          deleteRecursively(version);
+        }
+      }
+      final int deleted = cleanUp(now - RETENTION_MILLIS);
+      logger.info("Deleted {} unused entries of the artifact class index", deleted);
+    } catch (final IOException | RuntimeException e) {
+      logger.debug("Unable to clean up the artifact class index in {}", storeDirectory, e);
+    }
+  }
+
+  private void markUsed(final Path entryPath) {
+    try {
+      final long now = System.currentTimeMillis();
+      if (now - Files.getLastModifiedTime(entryPath).toMillis() >= CLEANUP_INTERVAL_MILLIS) {
+        Files.setLastModifiedTime(entryPath, FileTime.fromMillis(now));
+      }
+    } catch (final IOException | RuntimeException e) {
+      logger.debug("Unable to mark artifact class index entry {} as used", entryPath, e);
+    }
+  }
+
+  private static List<Path> list(final Path directory) throws IOException {
+    try (final Stream<Path> files = Files.list(directory)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+
+  private static void deleteRecursively(final Path path) throws IOException {
+    if (Files.isDirectory(path)) {
+      for (final Path child : list(path)) {
+        deleteRecursively(child);
+      }
+    }
+    Files.deleteIfExists(path);
+  }
+
+  private Path entryPath(final String key) {
+    final String hash = sha1(key);
+    return storeDirectory.resolve(hash.substring(0, 2)).resolve(hash + ENTRY_SUFFIX);
+  }
+
+  private static String key(final File file) throws IOException {
+    final Path path = file.toPath().toAbsolutePath().normalize();
+    final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    return path + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+  }
+
+  private static String sha1(final String value) {
+    try {
+      final byte[] digest =
+          MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+      final StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (final byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+}
@@ -1,24 +1,30 @@
 package ca.cutterslade.gradle.analyze.util;
 
-import ca.cutterslade.gradle.analyze.util.JavaUtil.LinkedHashSetValuedLinkedHashMap;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import org.apache.commons.collections4.MapIterator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.logging.Logger;
 
 public final class ClassFileCollectorUtil {
+  public static final String CLASS_LIST_SUFFIX = ".classes";
   private static final String classSuffix = ".class";
 
   private ClassFileCollectorUtil() {}
@@ -38,12 +44,56 @@ public final class ClassFileCollectorUtil {
     return classFiles;
   }
 
+  /**
+   * Checks if the file is a class list as written by the artifact class list transform.
+   *
+   * @param file the file
+   * @return true if the file contains one class name per line
+   */
+  public static boolean isClassList(final File file) {
+    return file.getPath().endsWith(CLASS_LIST_SUFFIX);
+  }
+
+  /**
+   * Reads the class names from a class list file.
+   *
+   * @param file the class list file
+   * @return the class names
+   */
+  public static Set<String> readClassList(final File file) {
+    try {
+      return new HashSet<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("unable to read class list from file", e);
+    }
+  }
+
+  /**
+   * Collect the class names of a jar file from the central directory of the archive. Only the entry
+   * names are needed, so opening the file as a {@link ZipFile} avoids reading and inflating the
+   * content of every entry as a {@link java.util.jar.JarInputStream} would do. Where possible the
+   * central directory is mapped and parsed directly, see {@link MappedFiles#zipEntryNames(File)}.
+   *
+   * @param jarFile the jar file
+   * @param classFiles set the class names are added to
+   */
   private static void collectFormJar(final File jarFile, final Set<String> classFiles) {
-    try (final FileInputStream fis = new FileInputStream(jarFile);
-        final JarInputStream jis = new JarInputStream(fis)) {
-      JarEntry entry;
-      while ((entry = jis.getNextJarEntry()) != null) {
-        addToClassFilesIfMatches(entry.getName(), classFiles);
+    try {
+      final List<String> names = MappedFiles.zipEntryNames(jarFile);
+      if (names != null) {
+        names.forEach(name -> addToClassFilesIfMatches(name, classFiles));
+        return;
+      }
+    } catch (final IOException e) {
+      throw new IllegalArgumentException("unable to collect classes from file", e);
+    }
+    try (final ZipFile zipFile = new ZipFile(jarFile)) {
+      final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        final ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory()) {
+          addToClassFilesIfMatches(entry.getName(), classFiles);
+        }
       }
     } catch (final IOException e) {
       throw new IllegalArgumentException("unable to collect classes from file", e);
@@ -83,40 +133,112 @@ public final class ClassFileCollectorUtil {
    * class names they contain.
    *
    * @param logger logger
-   * @param cache cache for file to containing classes that were found and have been analyzed
-   * @param dependencyArtifacts component identifiers for dependencies with their file locations
-   * @return a Map of files to their classes
+   * @param cache cache of the classes contained in files which have already been indexed, shared
+   *     with the other analyze tasks of the build
+   * @param indexStore persistent store consulted before a file is indexed
+   * @param dependencyArtifacts component identifiers for dependencies with their file locations,
+   *     either artifact files or class lists produced by the artifact class list transform
+   * @param parallelism number of threads used to index files missing from the cache, 1 to index
+   *     them on the calling thread
+   * @return the classes of each component, in classpath order
    */
-  public static MultiValuedMap<ComponentIdentifier, String> buildArtifactClassMap(
+  public static Map<ComponentIdentifier, ClassNameSet> buildArtifactClassMap(
       final Logger logger,
-      final MultiValuedMap<File, String> cache,
-      final MultiValuedMap<ComponentIdentifier, File> dependencyArtifacts) {
-    final MultiValuedMap<ComponentIdentifier, String> artifactClassMap =
-        new LinkedHashSetValuedLinkedHashMap<>();
-
-    int hits = 0;
-    int misses = 0;
-
-    final MapIterator<ComponentIdentifier, File> iterator = dependencyArtifacts.mapIterator();
-    while (iterator.hasNext()) {
-      final ComponentIdentifier identifier = iterator.next();
-      final File file = iterator.getValue();
-      if (cache.containsKey(file)) {
-        logger.debug("Artifact class cache hit for {}", file);
-        hits++;
-      } else {
-        logger.debug("Artifact class cache miss for {}", file);
-        misses++;
-        final Set<String> classes = collectFromFile(file);
-        cache.putAll(file, classes);
+      final ArtifactClassCache cache,
+      final ArtifactClassIndexStore indexStore,
+      final MultiValuedMap<ComponentIdentifier, File> dependencyArtifacts,
+      final int parallelism) {
+    final Map<File, CompletableFuture<ClassNameSet>> pending = new LinkedHashMap<>();
+    final Set<File> reserved = new LinkedHashSet<>();
+    for (final File file : dependencyArtifacts.values()) {
+      if (!pending.containsKey(file) && !reserved.contains(file)) {
+        final CompletableFuture<ClassNameSet> entry = cache.lookupOrReserve(file);
+        if (entry == null) {
+          reserved.add(file);
+        } else {
+          logger.debug("Artifact class cache hit for {}", file);
+          pending.put(file, entry);
+        }
       }
-      artifactClassMap.putAll(identifier, cache.get(file));
     }
+
+    final Map<File, ClassNameSet> classesByFile = new HashMap<>();
+    int storeHits = 0;
+    try {
+      for (final IndexedFile indexedFile : indexFiles(logger, indexStore, reserved, parallelism)) {
+        if (indexedFile.fromStore) {
+          storeHits++;
+        }
+        cache.complete(indexedFile.file, indexedFile.classes);
+        classesByFile.put(indexedFile.file, indexedFile.classes);
+      }
+    } catch (final RuntimeException e) {
+      // release the reservations, other tasks waiting for them would otherwise never finish
+      reserved.forEach(file -> cache.fail(file, e));
+      throw e;
+    }
+    // only wait for other tasks after indexing our own reservations, they may be waiting for us
+    pending.forEach((file, entry) -> classesByFile.put(file, ArtifactClassCache.await(entry)));
+
+    // the sets of the cache are shared rather than copied, so each artifact's class names are held
+    // only once per build however many projects depend on it
+    final Map<ComponentIdentifier, ClassNameSet> artifactClassMap = new LinkedHashMap<>();
+    dependencyArtifacts
+        .asMap()
+        .forEach(
+            (identifier, files) ->
+                artifactClassMap.put(
+                    identifier,
+                    ClassNameSet.union(
+                        files.stream().map(classesByFile::get).collect(Collectors.toList()))));
     logger.info(
-        "Built artifact class map with {} hits and {} misses; cache size is {}",
-        hits,
-        misses,
-        cache.size());
+        "Built artifact class map with {} hits, {} index store hits and {} misses; cache size is {}"
+            + " with {} evictions",
+        pending.size(),
+        storeHits,
+        reserved.size() - storeHits,
+        cache.size(),
+        cache.evictions());
     return artifactClassMap;
   }
+
+  private static List<IndexedFile> indexFiles(
+      final Logger logger,
+      final ArtifactClassIndexStore indexStore,
+      final Collection<File> files,
+      final int parallelism) {
+    return JavaUtil.mapInParallel(files, file -> indexFile(logger, indexStore, file), parallelism);
+  }
+
+  private static IndexedFile indexFile(
+      final Logger logger, final ArtifactClassIndexStore indexStore, final File file) {
+    if (isClassList(file)) {
+      logger.debug("Artifact class cache miss for class list {}", file);
+      return new IndexedFile(file, ClassNameSet.of(readClassList(file)), false);
+    }
+    final boolean persistent = indexStore.accepts(file);
+    final Set<String> stored = persistent ? indexStore.load(file) : null;
+    if (stored != null) {
+      logger.debug("Artifact class index store hit for {}", file);
+      return new IndexedFile(file, ClassNameSet.of(stored), true);
+    }
+    logger.debug("Artifact class cache miss for {}", file);
+    final Set<String> classes = collectFromFile(file);
+    if (persistent) {
+      indexStore.store(file, classes);
+    }
+    return new IndexedFile(file, ClassNameSet.of(classes), false);
+  }
+
+  private static final class IndexedFile {
+    private final File file;
+    private final ClassNameSet classes;
+    private final boolean fromStore;
+
+    private IndexedFile(final File file, final ClassNameSet classes, final boolean fromStore) {
+      this.file = file;
+      this.classes = classes;
+      this.fromStore = fromStore;
+    }
+  }
 }
@@ -0,0 +1,258 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable set of class names stored by package. Most classes of an artifact share a few long
+ * package names, so each package name is kept only once, interned across all artifacts, together
+ * with the sorted simple names of its classes. Membership checks split the name at its last dot and
+ * binary search the simple names of the package.
+ *
+ * <p>Iterating the set creates the full class names again; lookups should prefer {@link
+ * #contains(String, String)} with an already split name.
+ *
+ * <p>The union of several sets is a view of the shared sets rather than a copy of their names.
+ */
+public class ClassNameSet extends AbstractSet<String> {
+  private static final ClassNameSet EMPTY = new ClassNameSet(Collections.emptyMap(), 0);
+
+  private final Map<String, String[]> simpleNamesByPackage;
+  private final int size;
+
+  private ClassNameSet(final Map<String, String[]> simpleNamesByPackage, final int size) {
+    this.simpleNamesByPackage = simpleNamesByPackage;
+    this.size = size;
+  }
+
+  /**
+   * Creates a set of the given class names.
+   *
+   * @param classNames fully qualified class names
+   * @return the set
+   */
+  public static ClassNameSet of(final Collection<String> classNames) {
+    if (classNames instanceof ClassNameSet) {
+      return (ClassNameSet) classNames;
+    }
+    final Map<String, TreeSet<String>> grouped = new TreeMap<>();
+    for (final String className : classNames) {
+      grouped
+          .computeIfAbsent(packageName(className), packageName -> new TreeSet<>())
+          .add(simpleName(className));
+    }
+    return fromGrouped(grouped);
+  }
+
+  /**
+   * Creates the union of several sets. The union only refers to the given sets, so the sets of
+   * artifacts shared by the analyses of a build are not copied for every analysis.
+   *
+   * @param sets the sets
+   * @return a set containing the class names of all given sets
+   */
+  public static ClassNameSet union(final Collection<ClassNameSet> sets) {
+    // the members of a union are used directly, so each member holds its names itself
+    final ClassNameSet[] members =
+        sets.stream()
+            .flatMap(
+                set -> set instanceof Union ? Arrays.stream(((Union) set).members) : Stream.of(set))
+            .filter(set -> !set.isEmpty())
+            .distinct()
+            .toArray(ClassNameSet[]::new);
+    if (members.length == 0) {
+      return EMPTY;
+    }
+    return members.length == 1 ? members[0] : new Union(members);
+  }
+
+  private static ClassNameSet fromGrouped(final Map<String, TreeSet<String>> grouped) {
+    if (grouped.isEmpty()) {
+      return EMPTY;
+    }
+    final Map<String, String[]> simpleNamesByPackage = new HashMap<>(grouped.size() * 4 / 3 + 1);
+    int size = 0;
+    for (final Map.Entry<String, TreeSet<String>> entry : grouped.entrySet()) {
+      simpleNamesByPackage.put(entry.getKey().intern(), entry.getValue().toArray(new String[0]));
+      size += entry.getValue().size();
+    }
+    return new ClassNameSet(simpleNamesByPackage, size);
+  }
+
+  /**
+   * Returns the package part of a class name.
+   *
+   * @param className a fully qualified class name
+   * @return the package name, empty for the default package
+   */
+  public static String packageName(final String className) {
+    final int lastDot = className.lastIndexOf('.');
+    return lastDot < 0 ? "" : className.substring(0, lastDot);
+  }
+
+  /**
+   * Returns the simple name part of a class name.
+   *
+   * @param className a fully qualified class name
+   * @return the name without the package
+   */
+  public static String simpleName(final String className) {
+    return className.substring(className.lastIndexOf('.') + 1);
+  }
+
+  /**
+   * Returns the packages containing at least one class of this set.
+   *
+   * @return the package names
+   */
+  public Set<String> packages() {
+    return Collections.unmodifiableSet(simpleNamesByPackage.keySet());
+  }
+
+  /**
+   * Checks if the set contains a class given by its package and simple name.
+   *
+   * @param packageName the package name, empty for the default package
+   * @param simpleName the class name without the package
+   * @return true if the class is contained in this set
+   */
+  public boolean contains(final String packageName, final String simpleName) {
+    final String[] simpleNames = simpleNamesByPackage.get(packageName);
+    return simpleNames != null && Arrays.binarySearch(simpleNames, simpleName) >= 0;
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    if (!(o instanceof String)) {
+      return false;
+    }
+    final String className = (String) o;
+    return contains(packageName(className), simpleName(className));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    final Iterator<Map.Entry<String, String[]>> packages =
+        simpleNamesByPackage.entrySet().iterator();
+    return new Iterator<String>() {
+      private String packagePrefix;
+      private String[] simpleNames = new String[0];
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        while (index == simpleNames.length && packages.hasNext()) {
+          final Map.Entry<String, String[]> entry = packages.next();
+          packagePrefix = entry.getKey().isEmpty() ? "" : entry.getKey() + '.';
+          simpleNames = entry.getValue();
+          index = 0;
+        }
+        return index < simpleNames.length;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return packagePrefix + simpleNames[index++];
+      }
+    };
+  }
+
+  /** A view of the union of sets, which lists each class name once. */
+  private static final class Union extends ClassNameSet {
+    private final ClassNameSet[] members;
+    private volatile Set<String> packages;
+
+    private Union(final ClassNameSet[] members) {
+      super(Collections.emptyMap(), size(members));
+      this.members = members;
+    }
+
+    /** Counts the names of the members, without creating the full class names. */
+    private static int size(final ClassNameSet[] members) {
+      int size = 0;
+      for (int member = 0; member < members.length; member++) {
+        for (final Map.Entry<String, String[]> entry :
+            members[member].simpleNamesByPackage.entrySet()) {
+          for (final String simpleName : entry.getValue()) {
+            if (!containedInEarlier(members, member, entry.getKey(), simpleName)) {
+              size++;
+            }
+          }
+        }
+      }
+      return size;
+    }
+
+    private static boolean containedInEarlier(
+        final ClassNameSet[] members,
+        final int member,
+        final String packageName,
+        final String simpleName) {
+      for (int earlier = 0; earlier < member; earlier++) {
+        if (members[earlier].contains(packageName, simpleName)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Set<String> packages() {
+      Set<String> result = packages;
+      if (result == null) {
+        final Set<String> union = new HashSet<>();
+        for (final ClassNameSet member : members) {
+          union.addAll(member.packages());
+        }
+        result = Collections.unmodifiableSet(union);
+        packages = result;
+      }
+      return result;
+    }
+
+    @Override
+    public boolean contains(final String packageName, final String simpleName) {
+      for (final ClassNameSet member : members) {
+        if (member.contains(packageName, simpleName)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      // a name is listed by the first member containing it
+      return IntStream.range(0, members.length)
+          .boxed()
+          .flatMap(
+              member ->
+                  members[member].stream()
+                      .filter(
+                          className ->
+                              IntStream.range(0, member)
+                                  .noneMatch(earlier -> members[earlier].contains(className))))
+          .iterator();
+    }
+  }
+}
@@ -0,0 +1,272 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import ca.cutterslade.gradle.analyze.javac.RecordedReferences;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.shared.dependency.analyzer.asm.DependencyClassFileVisitor;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Cache of the classes referenced by each class file of the analyzed classes directories, kept
+ * between builds in a file of the task's temporary directory.
+ *
+ * <p>Entries are keyed by the path, size and last modified time of the class file. Only class files
+ * without a matching entry are parsed again, so a small change to a large project only re-parses
+ * the recompiled classes. Entries of class files which no longer exist are dropped when the cache
+ * is saved. Failing to read or write the cache file is never fatal, all class files are just
+ * parsed.
+ *
+ * <p>Class files are parsed either by the ASM visitor of maven-dependency-analyzer or by the {@link
+ * ConstantPoolScanner}. The cache file records which of them created the entries, switching to the
+ * other one discards all entries.
+ *
+ * <p>Classes whose references were recorded by the javac plugin of the compilation are neither
+ * parsed nor cached, see {@link RecordedReferences}.
+ */
+public final class ClassReferenceCache {
+  private static final int FORMAT_VERSION = 2;
+
+  private final Path cacheFile;
+  private final Logger logger;
+  private final boolean constantPoolScanner;
+  private final Map<String, Entry> entries;
+  private final Map<String, Entry> visited = new HashMap<>();
+  private int hits;
+  private int recorded;
+  private int misses;
+
+  private ClassReferenceCache(
+      final Path cacheFile,
+      final Logger logger,
+      final boolean constantPoolScanner,
+      final Map<String, Entry> entries) {
+    this.cacheFile = cacheFile;
+    this.logger = logger;
+    this.constantPoolScanner = constantPoolScanner;
+    this.entries = entries;
+  }
+
+  /**
+   * Loads the cache from a file, starting with an empty cache if the file does not exist or cannot
+   * be read.
+   *
+   * @param cacheFile the file holding the cache
+   * @param logger logger
+   * @param constantPoolScanner true to parse class files with the {@link ConstantPoolScanner},
+   *     false to use the ASM visitor
+   * @return the cache
+   */
+  public static ClassReferenceCache load(
+      final Path cacheFile, final Logger logger, final boolean constantPoolScanner) {
+    final Map<String, Entry> entries = new HashMap<>();
+    try (final DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+      if (in.readInt() == FORMAT_VERSION && in.readBoolean() == constantPoolScanner) {
+        // referenced class names repeat a lot between class files, keep a single instance of each
+        final Map<String, String> names = new HashMap<>();
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          final String path = in.readUTF();
+          final long size = in.readLong();
+          final long lastModified = in.readLong();
+          final int referenceCount = in.readInt();
+          final List<String> references = new ArrayList<>(referenceCount);
+          for (int j = 0; j < referenceCount; j++) {
+            final String name = in.readUTF();
+            references.add(names.computeIfAbsent(name, n -> n));
+          }
+          entries.put(path, new Entry(size, lastModified, references));
+        }
+      }
+    } catch (final NoSuchFileException e) {
+      logger.debug("No class reference cache at {}", cacheFile);
+    } catch (final IOException | RuntimeException e) {
+      logger.debug("Unable to read class reference cache {}", cacheFile, e);
+      entries.clear();
+    }
+    return new ClassReferenceCache(cacheFile, logger, constantPoolScanner, entries);
+  }
+
+  /**
+   * Determines the classes referenced by all class files below the given directories. Class files
+   * without recorded references or a matching cache entry are parsed on up to the given number of
+   * threads.
+   *
+   * @param classesDirs the classes directories
+   * @param recordedReferences the references recorded during compilation by top level class name
+   * @param parallelism the maximum number of threads parsing class files, 1 to parse them on the
+   *     calling thread
+   * @return the referenced class names
+   * @throws IOException if a classes directory cannot be read
+   */
+  public Set<String> analyze(
+      final Collection<File> classesDirs,
+      final Map<String, List<String>> recordedReferences,
+      final int parallelism)
+      throws IOException {
+    final Set<String> references = new HashSet<>();
+    final Set<String> recordedClasses = new HashSet<>();
+    final List<ClassFile> changed = new ArrayList<>();
+    for (final File classesDir : classesDirs) {
+      for (final Path path : classFiles(classesDir)) {
+        final ClassFile classFile = new ClassFile(classesDir, path);
+        final String topLevelClassName = RecordedReferences.topLevelClassName(classFile.className);
+        final Entry entry = entries.get(classFile.key);
+        if (recordedReferences.containsKey(topLevelClassName)) {
+          recorded++;
+          if (recordedClasses.add(topLevelClassName)) {
+            references.addAll(recordedReferences.get(topLevelClassName));
+          }
+        } else if (entry != null
+            && entry.size == classFile.size
+            && entry.lastModified == classFile.lastModified) {
+          hits++;
+          visited.put(classFile.key, entry);
+          references.addAll(entry.references);
+        } else {
+          changed.add(classFile);
+        }
+      }
+    }
+    misses += changed.size();
+
+    final List<List<String>> parsed = JavaUtil.mapInParallel(changed, this::parse, parallelism);
+    for (int i = 0; i < changed.size(); i++) {
+      final ClassFile classFile = changed.get(i);
+      visited.put(classFile.key, new Entry(classFile.size, classFile.lastModified, parsed.get(i)));
+      references.addAll(parsed.get(i));
+    }
+    return references;
+  }
+
+  private static List<Path> classFiles(final File classesDir) throws IOException {
+    try (final Stream<Path> walk = Files.walk(classesDir.toPath())) {
+      return walk.filter(path -> path.getFileName().toString().endsWith(".class"))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private List<String> parse(final ClassFile classFile) {
+    try {
+      if (constantPoolScanner) {
+        return new ArrayList<>(
+            ConstantPoolScanner.referencedClasses(MappedFiles.read(classFile.path)));
+      }
+      return visit(classFile);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (final RuntimeException e) {
+      throw new RuntimeException(
+          String.format(
+              "%s from directory = %s, path = %s",
+              e.getMessage(), classFile.classesDir, classFile.path),
+          e);
+    }
+  }
+
+  private static List<String> visit(final ClassFile classFile) throws IOException {
+    try (final InputStream in = Files.newInputStream(classFile.path)) {
+      final DependencyClassFileVisitor visitor = new DependencyClassFileVisitor();
+      visitor.visitClass(classFile.className, in);
+      return new ArrayList<>(visitor.getDependencies());
+    }
+  }
+
+  /**
+   * Writes the entries of all class files analyzed since the cache was loaded to the cache file.
+   */
+  public void save() {
+    logger.info(
+        "Analyzed class files with {} class reference cache hits, {} references recorded by javac"
+            + " and {} misses",
+        hits,
+        recorded,
+        misses);
+    Path temporaryFile = null;
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      temporaryFile = Files.createTempFile(cacheFile.getParent(), "class-references", ".tmp");
+      try (final DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeBoolean(constantPoolScanner);
+        out.writeInt(visited.size());
+        for (final Map.Entry<String, Entry> entry : visited.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeLong(entry.getValue().size);
+          out.writeLong(entry.getValue().lastModified);
+          out.writeInt(entry.getValue().references.size());
+          for (final String reference : entry.getValue().references) {
+            out.writeUTF(reference);
+          }
+        }
+      }
+      Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final IOException | RuntimeException e) {
+      logger.debug("Unable to write class reference cache {}", cacheFile, e);
+    } finally {
+      if (temporaryFile != null) {
+        try {
+          Files.deleteIfExists(temporaryFile);
+        } catch (final IOException e) {
+          logger.debug("Unable to delete temporary file {}", temporaryFile, e);
+        }
+      }
+    }
+  }
+
+  private static final class ClassFile {
+    private final File classesDir;
+    private final Path path;
+    private final String className;
+    private final String key;
+    private final long size;
+    private final long lastModified;
+
+    private ClassFile(final File classesDir, final Path path) throws IOException {
+      final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      this.classesDir = classesDir;
+      this.path = path;
+      final String relativePath = classesDir.toPath().relativize(path).toString();
+      this.className =
+          relativePath
+              .substring(0, relativePath.length() - ".class".length())
+              .replace(File.separatorChar, '.');
+      this.key = path.toAbsolutePath().normalize().toString();
+      this.size = attributes.size();
+      this.lastModified = attributes.lastModifiedTime().toMillis();
+    }
+  }
+
+  private static final class Entry {
+    private final long size;
+    private final long lastModified;
+    private final List<String> references;
+
+    private Entry(final long size, final long lastModified, final List<String> references) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.references = references;
+    }
+  }
+}
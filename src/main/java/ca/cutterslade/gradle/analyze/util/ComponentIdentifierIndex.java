@@ -0,0 +1,150 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+
+/**
+ * Numbers the component identifiers seen by an analysis densely, so that sets of them can be
+ * combined as bit sets instead of hashing the identifiers for every set operation.
+ *
+ * <p>An index is meant for a single analysis and is not thread safe.
+ */
+public final class ComponentIdentifierIndex {
+  private final Map<ComponentIdentifier, Integer> ids = new HashMap<>();
+  private final List<ComponentIdentifier> identifiers = new ArrayList<>();
+
+  /**
+   * Returns the number of an identifier, numbering it if it has not been seen before.
+   *
+   * @param identifier the identifier
+   * @return its number
+   */
+  public int id(final ComponentIdentifier identifier) {
+    final Integer id = ids.get(identifier);
+    if (id != null) {
+      return id;
+    }
+    ids.put(identifier, identifiers.size());
+    identifiers.add(identifier);
+    return identifiers.size() - 1;
+  }
+
+  /**
+   * Returns the numbers of identifiers, numbering those not seen before.
+   *
+   * @param identifiers the identifiers
+   * @return a new bit set of their numbers
+   */
+  public BitSet ids(final Collection<? extends ComponentIdentifier> identifiers) {
+    final BitSet set = new BitSet();
+    identifiers.forEach(identifier -> set.set(id(identifier)));
+    return set;
+  }
+
+  /**
+   * Returns the numbers of the components of artifacts, numbering those not seen before.
+   *
+   * @param artifacts the artifacts
+   * @return a new bit set of the numbers of their components
+   */
+  public BitSet artifactIds(final Collection<ResolvedArtifact> artifacts) {
+    final BitSet set = new BitSet();
+    artifacts.forEach(artifact -> set.set(id(artifact.getId().getComponentIdentifier())));
+    return set;
+  }
+
+  /**
+   * Returns the identifiers of numbers as a new modifiable set.
+   *
+   * @param set the numbers
+   * @return the identifiers, in the order they have been numbered
+   */
+  public Set<ComponentIdentifier> identifiers(final BitSet set) {
+    final Set<ComponentIdentifier> result = new LinkedHashSet<>();
+    for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+      result.add(identifiers.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * Returns an unmodifiable view of the identifiers of numbers, following changes of the bit set.
+   * It is meant for logging, and for code taking sets of identifiers, without copying them.
+   *
+   * @param set the numbers
+   * @return a view of the identifiers
+   */
+  public Set<ComponentIdentifier> view(final BitSet set) {
+    return new AbstractSet<ComponentIdentifier>() {
+      @Override
+      public boolean contains(final Object o) {
+        final Integer id = ids.get(o);
+        return id != null && set.get(id);
+      }
+
+      @Override
+      public int size() {
+        return set.cardinality();
+      }
+
+      @Override
+      public Iterator<ComponentIdentifier> iterator() {
+        return new Iterator<ComponentIdentifier>() {
+          private int next = set.nextSetBit(0);
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public ComponentIdentifier next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            final ComponentIdentifier identifier = identifiers.get(next);
+            next = set.nextSetBit(next + 1);
+            return identifier;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Returns the intersection of two bit sets.
+   *
+   * @param first the first set, left unchanged
+   * @param second the second set, left unchanged
+   * @return a new bit set
+   */
+  public static BitSet and(final BitSet first, final BitSet second) {
+    final BitSet result = (BitSet) first.clone();
+    result.and(second);
+    return result;
+  }
+
+  /**
+   * Returns the difference of two bit sets.
+   *
+   * @param first the set to remove from, left unchanged
+   * @param second the set to remove, left unchanged
+   * @return a new bit set
+   */
+  public static BitSet andNot(final BitSet first, final BitSet second) {
+    final BitSet result = (BitSet) first.clone();
+    result.andNot(second);
+    return result;
+  }
+}
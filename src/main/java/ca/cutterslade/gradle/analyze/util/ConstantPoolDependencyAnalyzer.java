@@ -0,0 +1,38 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.maven.shared.dependency.analyzer.ClassFileVisitorUtils;
+import org.apache.maven.shared.dependency.analyzer.ClassesPatterns;
+import org.apache.maven.shared.dependency.analyzer.DependencyAnalyzer;
+import org.apache.maven.shared.dependency.analyzer.DependencyUsage;
+
+/**
+ * Dependency analyzer finding the referenced classes with the {@link ConstantPoolScanner}, as a
+ * faster replacement of the ASM based analyzer of maven-dependency-analyzer.
+ */
+public final class ConstantPoolDependencyAnalyzer implements DependencyAnalyzer {
+  @Override
+  public Set<DependencyUsage> analyzeUsages(final URL url, final ClassesPatterns excludeClasses)
+      throws IOException {
+    final Set<DependencyUsage> usages = new HashSet<>();
+    ClassFileVisitorUtils.accept(
+        url,
+        (className, in) -> {
+          if (excludeClasses.isMatch(className)) {
+            return;
+          }
+          try {
+            for (final String referencedClass : ConstantPoolScanner.referencedClasses(in)) {
+              usages.add(new DependencyUsage(referencedClass, className));
+            }
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    return usages;
+  }
+}
@@ -0,0 +1,752 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds the classes referenced by a class file by decoding only its constant pool, the descriptors
+ * and signatures of its members, and its annotations, instead of visiting every instruction of
+ * every method like {@link
+ * org.apache.maven.shared.dependency.analyzer.asm.DependencyClassFileVisitor}.
+ *
+ * <p>The result is the same as the one of the ASM visitor. Every class entry of the constant pool
+ * naming a class of a package is reported by both, so instructions only matter for classes of the
+ * default package and for method types: the ASM visitor reports those when an instruction loads
+ * them or passes them to the bootstrap method of an invokedynamic instruction, but not when they
+ * only appear in the constant pool. Method bodies are therefore only walked for class files which
+ * have such entries, looking at the few instructions which refer to a class or a constant. Generic
+ * signatures are parsed like the ASM signature reader does, so the simple names of inner classes of
+ * parameterized types are reported like by the ASM visitor.
+ */
+public final class ConstantPoolScanner {
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  // length of each instruction, 0 for instructions of variable length and invalid opcodes
+  private static final byte[] INSTRUCTION_LENGTHS = new byte[256];
+
+  static {
+    fill(0x00, 0x0f, 1); // nop .. dconst_1
+    fill(0x10, 0x10, 2); // bipush
+    fill(0x11, 0x11, 3); // sipush
+    fill(0x12, 0x12, 2); // ldc
+    fill(0x13, 0x14, 3); // ldc_w, ldc2_w
+    fill(0x15, 0x19, 2); // iload .. aload
+    fill(0x1a, 0x35, 1); // iload_0 .. saload
+    fill(0x36, 0x3a, 2); // istore .. astore
+    fill(0x3b, 0x83, 1); // istore_0 .. lxor
+    fill(0x84, 0x84, 3); // iinc
+    fill(0x85, 0x98, 1); // i2l .. dcmpg
+    fill(0x99, 0xa8, 3); // ifeq .. jsr
+    fill(0xa9, 0xa9, 2); // ret
+    fill(0xac, 0xb1, 1); // ireturn .. return
+    fill(0xb2, 0xb8, 3); // getstatic .. invokestatic
+    fill(0xb9, 0xba, 5); // invokeinterface, invokedynamic
+    fill(0xbb, 0xbb, 3); // new
+    fill(0xbc, 0xbc, 2); // newarray
+    fill(0xbd, 0xbd, 3); // anewarray
+    fill(0xbe, 0xbf, 1); // arraylength, athrow
+    fill(0xc0, 0xc1, 3); // checkcast, instanceof
+    fill(0xc2, 0xc3, 1); // monitorenter, monitorexit
+    fill(0xc5, 0xc5, 4); // multianewarray
+    fill(0xc6, 0xc7, 3); // ifnull, ifnonnull
+    fill(0xc8, 0xc9, 5); // goto_w, jsr_w
+  }
+
+  private final ByteBuffer b;
+  // offset of the data of each constant pool entry, right after its tag
+  private final int[] entries;
+  private final String[] strings;
+  private final Set<String> references = new HashSet<>();
+  private int[] bootstrapMethods;
+  private boolean walkCode;
+
+  private ConstantPoolScanner(final ByteBuffer classFile) {
+    this.b = classFile.duplicate().order(ByteOrder.BIG_ENDIAN);
+    if (readInt(0) != 0xCAFEBABE) {
+      throw new IllegalArgumentException("Not a class file");
+    }
+    this.entries = new int[readUnsignedShort(8)];
+    this.strings = new String[entries.length];
+  }
+
+  private static void fill(final int from, final int to, final int length) {
+    for (int opcode = from; opcode <= to; opcode++) {
+      INSTRUCTION_LENGTHS[opcode] = (byte) length;
+    }
+  }
+
+  /**
+   * Reads a class file and finds the classes it references.
+   *
+   * @param in the class file
+   * @return the fully qualified names of the referenced classes, without nested classes
+   * @throws IOException if the class file cannot be read
+   */
+  public static Set<String> referencedClasses(final InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) > 0) {
+      out.write(buffer, 0, read);
+    }
+    return referencedClasses(out.toByteArray());
+  }
+
+  /**
+   * Finds the classes referenced by a class file.
+   *
+   * @param classFile the content of the class file
+   * @return the fully qualified names of the referenced classes, without nested classes
+   * @throws IllegalArgumentException if the content is not a valid class file
+   */
+  public static Set<String> referencedClasses(final byte[] classFile) {
+    return referencedClasses(ByteBuffer.wrap(classFile));
+  }
+
+  /**
+   * Finds the classes referenced by a class file, for example one mapped into memory. Only absolute
+   * reads are used, the position of the buffer is left untouched.
+   *
+   * @param classFile the content of the class file, starting at index 0 of the buffer
+   * @return the fully qualified names of the referenced classes, without nested classes
+   * @throws IllegalArgumentException if the content is not a valid class file
+   */
+  public static Set<String> referencedClasses(final ByteBuffer classFile) {
+    final ConstantPoolScanner scanner = new ConstantPoolScanner(classFile);
+    try {
+      scanner.scan();
+    } catch (final IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated class file", e);
+    }
+    return scanner.references;
+  }
+
+  private void scan() {
+    int offset = readConstantPool();
+    final int superClass = readUnsignedShort(offset + 4);
+    final int interfacesOffset = offset + 6;
+    offset = interfacesOffset + 2 + readUnsignedShort(interfacesOffset) * 2;
+    final int fieldsOffset = offset;
+    offset = skipMembers(offset);
+    final int methodsOffset = offset;
+    offset = skipMembers(offset);
+
+    String signature = null;
+    final int attributes = readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < attributes; i++) {
+      final String name = readUtf8(readUnsignedShort(offset));
+      final int start = offset + 6;
+      final int length = readInt(offset + 2);
+      switch (name) {
+        case "Signature":
+          signature = readUtf8(readUnsignedShort(start));
+          break;
+        case "RuntimeVisibleAnnotations":
+        case "RuntimeInvisibleAnnotations":
+          readAnnotations(start, true);
+          break;
+        case "NestHost":
+          addClass(readUnsignedShort(start));
+          break;
+        case "NestMembers":
+          readClasses(start);
+          break;
+        case "BootstrapMethods":
+          readBootstrapMethods(start);
+          break;
+        default:
+          break;
+      }
+      offset = start + length;
+    }
+
+    if (signature == null) {
+      if (superClass != 0) {
+        addClass(superClass);
+      }
+      readClasses(interfacesOffset);
+    } else {
+      addSignature(signature);
+    }
+    readFields(fieldsOffset);
+    readMethods(methodsOffset);
+  }
+
+  private int readConstantPool() {
+    int offset = 10;
+    for (int i = 1; i < entries.length; i++) {
+      final int tag = b.get(offset);
+      entries[i] = offset + 1;
+      switch (tag) {
+        case CONSTANT_UTF8:
+          offset += 3 + readUnsignedShort(offset + 1);
+          break;
+        case CONSTANT_CLASS:
+        case CONSTANT_STRING:
+        case CONSTANT_METHOD_TYPE:
+        case CONSTANT_MODULE:
+        case CONSTANT_PACKAGE:
+          offset += 3;
+          break;
+        case CONSTANT_METHOD_HANDLE:
+          offset += 4;
+          break;
+        case CONSTANT_INTEGER:
+        case CONSTANT_FLOAT:
+        case CONSTANT_FIELDREF:
+        case CONSTANT_METHODREF:
+        case CONSTANT_INTERFACE_METHODREF:
+        case CONSTANT_NAME_AND_TYPE:
+        case CONSTANT_DYNAMIC:
+        case CONSTANT_INVOKE_DYNAMIC:
+          offset += 5;
+          break;
+        case CONSTANT_LONG:
+        case CONSTANT_DOUBLE:
+          offset += 9;
+          i++;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown constant pool type " + tag);
+      }
+    }
+
+    for (int i = 1; i < entries.length; i++) {
+      // the second slot of long and double entries has no offset
+      if (entries[i] == 0) {
+        continue;
+      }
+      switch (b.get(entries[i] - 1)) {
+        case CONSTANT_CLASS:
+          final String name = readUtf8(readUnsignedShort(entries[i]));
+          if (name.indexOf('/') >= 0) {
+            addInternalName(name);
+          } else {
+            // only reported if used by an instruction, see the class comment
+            walkCode = true;
+          }
+          break;
+        case CONSTANT_NAME_AND_TYPE:
+          final String descriptor = readUtf8(readUnsignedShort(entries[i] + 2));
+          if (descriptor.charAt(0) == '(') {
+            addDescriptor(descriptor, true);
+          }
+          break;
+        case CONSTANT_METHOD_TYPE:
+          // only reported if loaded by an instruction, see the class comment
+          walkCode = true;
+          break;
+        default:
+          break;
+      }
+    }
+    return offset;
+  }
+
+  private int skipMembers(int offset) {
+    final int count = readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      final int attributes = readUnsignedShort(offset + 6);
+      offset += 8;
+      for (int j = 0; j < attributes; j++) {
+        offset += 6 + readInt(offset + 2);
+      }
+    }
+    return offset;
+  }
+
+  private void readFields(int offset) {
+    final int count = readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      final String descriptor = readUtf8(readUnsignedShort(offset + 4));
+      String signature = null;
+      final int attributes = readUnsignedShort(offset + 6);
+      offset += 8;
+      for (int j = 0; j < attributes; j++) {
+        final String name = readUtf8(readUnsignedShort(offset));
+        final int start = offset + 6;
+        if ("Signature".equals(name)) {
+          signature = readUtf8(readUnsignedShort(start));
+        } else if ("RuntimeVisibleAnnotations".equals(name)
+            || "RuntimeInvisibleAnnotations".equals(name)) {
+          readAnnotations(start, true);
+        }
+        offset = start + readInt(offset + 2);
+      }
+      if (signature == null) {
+        addDescriptor(descriptor, false);
+      } else {
+        addSignature(signature);
+      }
+    }
+  }
+
+  private void readMethods(int offset) {
+    final int count = readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      final String descriptor = readUtf8(readUnsignedShort(offset + 4));
+      String signature = null;
+      final int attributes = readUnsignedShort(offset + 6);
+      offset += 8;
+      for (int j = 0; j < attributes; j++) {
+        final String name = readUtf8(readUnsignedShort(offset));
+        final int start = offset + 6;
+        switch (name) {
+          case "Signature":
+            signature = readUtf8(readUnsignedShort(start));
+            break;
+          case "Exceptions":
+            readClasses(start);
+            break;
+          case "RuntimeVisibleAnnotations":
+          case "RuntimeInvisibleAnnotations":
+            readAnnotations(start, true);
+            break;
+          case "RuntimeVisibleParameterAnnotations":
+          case "RuntimeInvisibleParameterAnnotations":
+            int parameterOffset = start + 1;
+            for (int parameter = 0; parameter < (b.get(start) & 0xFF); parameter++) {
+              parameterOffset = readAnnotations(parameterOffset, true);
+            }
+            break;
+          case "RuntimeVisibleTypeAnnotations":
+          case "RuntimeInvisibleTypeAnnotations":
+            readTypeAnnotations(start, false);
+            break;
+          case "Code":
+            readCode(start);
+            break;
+          default:
+            break;
+        }
+        offset = start + readInt(offset + 2);
+      }
+      if (signature == null) {
+        addDescriptor(descriptor, false);
+      } else {
+        addSignature(signature);
+      }
+    }
+  }
+
+  private void readCode(final int offset) {
+    final int codeStart = offset + 8;
+    final int codeEnd = codeStart + readInt(offset + 4);
+    if (walkCode) {
+      walkCode(codeStart, codeEnd);
+    }
+    int current = codeEnd + 2;
+    for (int count = readUnsignedShort(codeEnd), i = 0; i < count; i++) {
+      final int catchType = readUnsignedShort(current + 6);
+      if (catchType != 0) {
+        addClass(catchType);
+      }
+      current += 8;
+    }
+
+    int localVariables = 0;
+    int localVariableTypes = 0;
+    final int attributes = readUnsignedShort(current);
+    current += 2;
+    for (int i = 0; i < attributes; i++) {
+      final String name = readUtf8(readUnsignedShort(current));
+      final int start = current + 6;
+      switch (name) {
+        case "LocalVariableTable":
+          localVariables = start;
+          break;
+        case "LocalVariableTypeTable":
+          localVariableTypes = start;
+          break;
+        case "RuntimeVisibleTypeAnnotations":
+        case "RuntimeInvisibleTypeAnnotations":
+          readTypeAnnotations(start, true);
+          break;
+        default:
+          break;
+      }
+      current = start + readInt(current + 2);
+    }
+    if (localVariables != 0) {
+      readLocalVariables(localVariables, localVariableTypes);
+    }
+  }
+
+  private void readLocalVariables(final int offset, final int typesOffset) {
+    final int count = readUnsignedShort(offset);
+    for (int i = 0; i < count; i++) {
+      final int entry = offset + 2 + i * 10;
+      final String signature = localVariableSignature(typesOffset, entry);
+      if (signature == null) {
+        addDescriptor(readUtf8(readUnsignedShort(entry + 6)), false);
+      } else {
+        addSignature(signature);
+      }
+    }
+  }
+
+  // the signature of the local variable with the same start and index, like ASM pairs them
+  private String localVariableSignature(final int typesOffset, final int entry) {
+    if (typesOffset == 0) {
+      return null;
+    }
+    final int count = readUnsignedShort(typesOffset);
+    for (int i = 0; i < count; i++) {
+      final int typeEntry = typesOffset + 2 + i * 10;
+      if (readUnsignedShort(typeEntry) == readUnsignedShort(entry)
+          && readUnsignedShort(typeEntry + 8) == readUnsignedShort(entry + 8)) {
+        return readUtf8(readUnsignedShort(typeEntry + 6));
+      }
+    }
+    return null;
+  }
+
+  private void walkCode(final int codeStart, final int codeEnd) {
+    int offset = codeStart;
+    while (offset < codeEnd) {
+      final int opcode = b.get(offset) & 0xFF;
+      switch (opcode) {
+        case 0x12: // ldc
+          addLoadedConstant(b.get(offset + 1) & 0xFF);
+          break;
+        case 0x13: // ldc_w
+          addLoadedConstant(readUnsignedShort(offset + 1));
+          break;
+        case 0xb2: // getstatic .. invokeinterface, the owner of the member
+        case 0xb3:
+        case 0xb4:
+        case 0xb5:
+        case 0xb6:
+        case 0xb7:
+        case 0xb8:
+        case 0xb9:
+          addClass(readUnsignedShort(entries[readUnsignedShort(offset + 1)]));
+          break;
+        case 0xba: // invokedynamic
+          addBootstrapArguments(readUnsignedShort(entries[readUnsignedShort(offset + 1)]));
+          break;
+        case 0xbb: // new, anewarray, checkcast, instanceof, multianewarray
+        case 0xbd:
+        case 0xc0:
+        case 0xc1:
+        case 0xc5:
+          addClass(readUnsignedShort(offset + 1));
+          break;
+        case 0xaa: // tableswitch
+          offset += 4 - ((offset - codeStart) & 3);
+          offset += 12 + (readInt(offset + 8) - readInt(offset + 4) + 1) * 4;
+          continue;
+        case 0xab: // lookupswitch
+          offset += 4 - ((offset - codeStart) & 3);
+          offset += 8 + readInt(offset + 4) * 8;
+          continue;
+        case 0xc4: // wide
+          offset += (b.get(offset + 1) & 0xFF) == 0x84 ? 6 : 4;
+          continue;
+        default:
+          break;
+      }
+      if (INSTRUCTION_LENGTHS[opcode] == 0) {
+        throw new IllegalArgumentException("Unknown opcode " + opcode);
+      }
+      offset += INSTRUCTION_LENGTHS[opcode];
+    }
+  }
+
+  private void addLoadedConstant(final int index) {
+    switch (b.get(entries[index] - 1)) {
+      case CONSTANT_CLASS:
+        addClass(index);
+        break;
+      case CONSTANT_METHOD_TYPE:
+        addDescriptor(readUtf8(readUnsignedShort(entries[index])), false);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void readBootstrapMethods(final int offset) {
+    bootstrapMethods = new int[readUnsignedShort(offset)];
+    int current = offset + 2;
+    for (int i = 0; i < bootstrapMethods.length; i++) {
+      bootstrapMethods[i] = current;
+      current += 4 + readUnsignedShort(current + 2) * 2;
+    }
+  }
+
+  private void addBootstrapArguments(final int bootstrapMethod) {
+    final int offset = bootstrapMethods[bootstrapMethod];
+    for (int count = readUnsignedShort(offset + 2), i = 0; i < count; i++) {
+      addLoadedConstant(readUnsignedShort(offset + 4 + i * 2));
+    }
+  }
+
+  private void readClasses(final int offset) {
+    for (int count = readUnsignedShort(offset), i = 0; i < count; i++) {
+      addClass(readUnsignedShort(offset + 2 + i * 2));
+    }
+  }
+
+  private int readAnnotations(final int offset, final boolean add) {
+    int current = offset + 2;
+    for (int count = readUnsignedShort(offset), i = 0; i < count; i++) {
+      current = readAnnotation(current, add);
+    }
+    return current;
+  }
+
+  // only the type annotations of local variables are reported within code, like ASM does
+  private void readTypeAnnotations(final int offset, final boolean code) {
+    int current = offset + 2;
+    for (int count = readUnsignedShort(offset), i = 0; i < count; i++) {
+      final int targetType = b.get(current) & 0xFF;
+      switch (targetType) {
+        case 0x13: // field, method return, method receiver
+        case 0x14:
+        case 0x15:
+          current += 1;
+          break;
+        case 0x00: // type parameter, formal parameter
+        case 0x01:
+        case 0x16:
+          current += 2;
+          break;
+        case 0x10: // supertype, type parameter bound, throws, catch, offset
+        case 0x11:
+        case 0x12:
+        case 0x17:
+        case 0x42:
+        case 0x43:
+        case 0x44:
+        case 0x45:
+        case 0x46:
+          current += 3;
+          break;
+        case 0x47: // type argument
+        case 0x48:
+        case 0x49:
+        case 0x4a:
+        case 0x4b:
+          current += 4;
+          break;
+        case 0x40: // local variable, resource variable
+        case 0x41:
+          current += 3 + readUnsignedShort(current + 1) * 6;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown type annotation target " + targetType);
+      }
+      current += 1 + (b.get(current) & 0xFF) * 2;
+      current = readAnnotation(current, !code || targetType == 0x40 || targetType == 0x41);
+    }
+  }
+
+  private int readAnnotation(final int offset, final boolean add) {
+    if (add) {
+      addDescriptor(readUtf8(readUnsignedShort(offset)), false);
+    }
+    int current = offset + 4;
+    for (int count = readUnsignedShort(offset + 2), i = 0; i < count; i++) {
+      current = readElementValue(current + 2, add);
+    }
+    return current;
+  }
+
+  private int readElementValue(final int offset, final boolean add) {
+    switch (b.get(offset)) {
+      case 'e':
+        if (add) {
+          addDescriptor(readUtf8(readUnsignedShort(offset + 1)), false);
+        }
+        return offset + 5;
+      case 'c':
+        if (add) {
+          addDescriptor(readUtf8(readUnsignedShort(offset + 1)), false);
+        }
+        return offset + 3;
+      case '@':
+        return readAnnotation(offset + 1, add);
+      case '[':
+        int current = offset + 3;
+        for (int count = readUnsignedShort(offset + 1), i = 0; i < count; i++) {
+          current = readElementValue(current, add);
+        }
+        return current;
+      default:
+        return offset + 3;
+    }
+  }
+
+  private void addClass(final int index) {
+    addInternalName(readUtf8(readUnsignedShort(entries[index])));
+  }
+
+  private void addDescriptor(final String descriptor, final boolean packagedOnly) {
+    int offset = 0;
+    while (offset < descriptor.length()) {
+      if (descriptor.charAt(offset) == 'L') {
+        final int end = descriptor.indexOf(';', offset);
+        final String name = descriptor.substring(offset + 1, end);
+        if (!packagedOnly || name.indexOf('/') >= 0) {
+          add(name);
+        }
+        offset = end + 1;
+      } else {
+        offset++;
+      }
+    }
+  }
+
+  /**
+   * Adds the classes of a generic signature of a class, method or type. Formal type parameters are
+   * recognized like the ASM signature reader does, and inner classes of parameterized types are
+   * added by their simple name, as the ASM visitor receives them.
+   */
+  private void addSignature(final String signature) {
+    int offset = 0;
+    if (signature.charAt(0) == '<') {
+      offset = 1;
+      while (signature.charAt(offset) != '>') {
+        // the name of the type parameter, followed by its bounds
+        offset = signature.indexOf(':', offset);
+        while (signature.charAt(offset) == ':') {
+          offset++;
+          final char bound = signature.charAt(offset);
+          if (bound == 'L' || bound == '[' || bound == 'T') {
+            offset = addSignatureType(signature, offset);
+          }
+        }
+      }
+      offset++;
+    }
+    while (offset < signature.length()) {
+      final char c = signature.charAt(offset);
+      offset = c == '(' || c == ')' || c == '^' ? offset + 1 : addSignatureType(signature, offset);
+    }
+  }
+
+  private int addSignatureType(final String signature, final int offset) {
+    switch (signature.charAt(offset)) {
+      case '[':
+        return addSignatureType(signature, offset + 1);
+      case 'T':
+        return signature.indexOf(';', offset) + 1;
+      case 'L':
+        int start = offset + 1;
+        int current = start;
+        boolean added = false;
+        while (true) {
+          final char c = signature.charAt(current++);
+          if (c == '.' || c == ';') {
+            if (!added) {
+              addInternalName(signature.substring(start, current - 1));
+            }
+            if (c == ';') {
+              return current;
+            }
+            start = current;
+            added = false;
+          } else if (c == '<') {
+            addInternalName(signature.substring(start, current - 1));
+            added = true;
+            while (signature.charAt(current) != '>') {
+              final char argument = signature.charAt(current);
+              if (argument == '*') {
+                current++;
+              } else {
+                current =
+                    addSignatureType(
+                        signature, argument == '+' || argument == '-' ? current + 1 : current);
+              }
+            }
+          }
+        }
+      default:
+        // a base type
+        return offset + 1;
+    }
+  }
+
+  private void addInternalName(final String name) {
+    if (name.charAt(0) != '[') {
+      add(name);
+      return;
+    }
+    int start = 1;
+    while (name.charAt(start) == '[') {
+      start++;
+    }
+    // arrays of primitive types do not reference a class
+    if (name.charAt(start) == 'L') {
+      add(name.substring(start + 1, name.length() - 1));
+    }
+  }
+
+  private void add(final String internalName) {
+    // nested classes have the same compile requirements as the class containing them
+    if (internalName.indexOf('$') < 0) {
+      references.add(internalName.replace('/', '.'));
+    }
+  }
+
+  private String readUtf8(final int index) {
+    String string = strings[index];
+    if (string == null) {
+      final int offset = entries[index];
+      final int end = offset + 2 + readUnsignedShort(offset);
+      final char[] chars = new char[end - offset - 2];
+      int length = 0;
+      for (int current = offset + 2; current < end; ) {
+        final int c = b.get(current++);
+        if ((c & 0x80) == 0) {
+          chars[length++] = (char) (c & 0x7F);
+        } else if ((c & 0xE0) == 0xC0) {
+          chars[length++] = (char) (((c & 0x1F) << 6) + (b.get(current++) & 0x3F));
+        } else {
+          chars[length++] =
+              (char)
+                  (((c & 0xF) << 12)
+                      + ((b.get(current++) & 0x3F) << 6)
+                      + (b.get(current++) & 0x3F));
+        }
+      }
+      string = new String(chars, 0, length);
+      strings[index] = string;
+    }
+    return string;
+  }
+
+  private int readUnsignedShort(final int offset) {
+    return b.getShort(offset) & 0xFFFF;
+  }
+
+  private int readInt(final int offset) {
+    return b.getInt(offset);
+  }
+}
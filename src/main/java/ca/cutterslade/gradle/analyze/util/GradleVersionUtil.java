@@ -6,11 +6,30 @@ import org.gradle.api.logging.Logger;
 import org.gradle.util.GradleVersion;
 
 public final class GradleVersionUtil {
+  private static final GradleVersion VERSION_6_0 = GradleVersion.version("6.0");
+  private static final GradleVersion VERSION_6_1 = GradleVersion.version("6.1");
+  private static final GradleVersion VERSION_6_7 = GradleVersion.version("6.7");
   private static final GradleVersion VERSION_7_0 = GradleVersion.version("7.0");
   private static final GradleVersion VERSION_7_3 = GradleVersion.version("7.3");
 
   private GradleVersionUtil() {}
 
+  public static boolean isArtifactTransformSupported(final GradleVersion gradleVersion) {
+    return gradleVersion.compareTo(VERSION_6_0) >= 0;
+  }
+
+  public static boolean isBuildServiceSupported(final GradleVersion gradleVersion) {
+    return gradleVersion.compareTo(VERSION_6_1) >= 0;
+  }
+
+  public static boolean isToolchainSupported(final GradleVersion gradleVersion) {
+    return gradleVersion.compareTo(VERSION_6_7) >= 0;
+  }
+
+  public static boolean isUsesServiceSupported(final GradleVersion gradleVersion) {
+    return gradleVersion.compareTo(VERSION_7_0) >= 0;
+  }
+
   public static boolean isWarPluginBrokenWhenUsingProvidedRuntime(
       final GradleVersion gradleVersion) {
     return gradleVersion.compareTo(VERSION_7_0) >= 0 && gradleVersion.compareTo(VERSION_7_3) < 0;
@@ -5,6 +5,13 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Predicate;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -12,8 +19,34 @@ import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.AbstractSetValuedMap;
 
 public final class JavaUtil {
+  /**
+   * The threads shared by all parallel mappings of the daemon, bounded by the number of processors.
+   * Idle threads end after a while, so the pool does not keep threads alive between builds.
+   */
+  private static final ThreadPoolExecutor PARALLEL_EXECUTOR = parallelExecutor();
+
   private JavaUtil() {}
 
+  private static ThreadPoolExecutor parallelExecutor() {
+    final int threads = Runtime.getRuntime().availableProcessors();
+    final AtomicInteger count = new AtomicInteger();
+    final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              final Thread thread =
+                  new Thread(runnable, "analyze-dependencies-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   public static <T, K, U, E extends Exception>
       Collector<T, ?, MultiValuedMap<K, U>> toMultiValuedMap(
           Function<? super T, ? extends K, ? extends E> keyMapper,
@@ -44,6 +77,72 @@ public final class JavaUtil {
     return input.stream().map(mapper).collect(Collectors.toSet());
   }
 
+  /**
+   * Maps each input element, using up to the given number of threads. The results are returned in
+   * the order of the input, independent of the order in which the threads finish.
+   *
+   * <p>The calling thread maps elements itself, helped by threads of a pool shared by all callers,
+   * so concurrent tasks together never use more threads than there are processors in addition to
+   * their own. Elements are taken one at a time by whichever thread is free; if the pool is busy,
+   * the calling thread maps all of them.
+   *
+   * @param input the elements to map
+   * @param mapper the mapping function, which must be safe to call concurrently
+   * @param parallelism the maximum number of threads, 1 to map on the calling thread
+   * @return the mapped elements
+   */
+  public static <I, O> List<O> mapInParallel(
+      final Collection<I> input,
+      final java.util.function.Function<I, O> mapper,
+      final int parallelism) {
+    final List<O> output = new ArrayList<>(input.size());
+    if (parallelism <= 1 || input.size() <= 1) {
+      input.forEach(element -> output.add(mapper.apply(element)));
+      return output;
+    }
+    final List<I> elements = new ArrayList<>(input);
+    final AtomicReferenceArray<O> results = new AtomicReferenceArray<>(elements.size());
+    final AtomicInteger next = new AtomicInteger();
+    final CountDownLatch mapped = new CountDownLatch(elements.size());
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final Runnable worker =
+        () -> {
+          for (int i = next.getAndIncrement(); i < elements.size(); i = next.getAndIncrement()) {
+            try {
+              if (failure.get() == null) {
+                results.set(i, mapper.apply(elements.get(i)));
+              }
+            } catch (final RuntimeException | Error e) {
+              failure.compareAndSet(null, e);
+            } finally {
+              mapped.countDown();
+            }
+          }
+        };
+    final int helpers = Math.min(parallelism, elements.size()) - 1;
+    for (int i = 0; i < helpers; i++) {
+      PARALLEL_EXECUTOR.execute(worker);
+    }
+    worker.run();
+    try {
+      mapped.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while mapping in parallel", e);
+    }
+    final Throwable thrown = failure.get();
+    if (thrown instanceof Error) {
+      throw (Error) thrown;
+    }
+    if (thrown != null) {
+      throw (RuntimeException) thrown;
+    }
+    for (int i = 0; i < elements.size(); i++) {
+      output.add(results.get(i));
+    }
+    return output;
+  }
+
   @FunctionalInterface
   public interface Function<T, R, E extends Exception> extends java.util.function.Function<T, R> {
     @Override
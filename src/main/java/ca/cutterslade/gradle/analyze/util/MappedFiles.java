@@ -0,0 +1,132 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads class files and the central directory of jars through memory mapped buffers, saving the
+ * copies of stream based reading.
+ *
+ * <p>Mapping is not used on Windows, where a mapped file stays locked until the buffer is garbage
+ * collected, which would break the next compilation or jar task writing the file. Class files
+ * smaller than {@link #MAP_THRESHOLD} are read with a single read instead, as mapping them costs
+ * more than it saves.
+ */
+public final class MappedFiles {
+  static final int MAP_THRESHOLD = 64 * 1024;
+  private static final boolean SUPPORTED =
+      !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+  private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+  private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+  private MappedFiles() {}
+
+  /**
+   * Reads a whole file, mapping it if it is large enough and mapping is supported.
+   *
+   * @param path the file
+   * @return a buffer holding the content of the file from index 0
+   * @throws IOException if the file cannot be read
+   */
+  public static ByteBuffer read(final Path path) throws IOException {
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (SUPPORTED && size >= MAP_THRESHOLD) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      return ByteBuffer.wrap(Files.readAllBytes(path));
+    }
+  }
+
+  /**
+   * Lists the entry names of a zip file from its mapped central directory, without reading any
+   * local entry header or entry content.
+   *
+   * @param file the zip file
+   * @return the entry names, or null if mapping is not supported or the archive uses features which
+   *     are not handled here, like zip64 or multiple disks
+   * @throws IOException if the file cannot be read
+   */
+  static List<String> zipEntryNames(final File file) throws IOException {
+    if (!SUPPORTED) {
+      return null;
+    }
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size < END_OF_CENTRAL_DIRECTORY_SIZE) {
+        return null;
+      }
+      final long tailStart = Math.max(0, size - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_FIELD_LENGTH);
+      final MappedByteBuffer tail =
+          channel.map(FileChannel.MapMode.READ_ONLY, tailStart, size - tailStart);
+      tail.order(ByteOrder.LITTLE_ENDIAN);
+      final int end = findEndOfCentralDirectory(tail);
+      if (end < 0
+          || tail.getShort(end + 4) != 0
+          || tail.getShort(end + 6) != 0
+          || tail.getShort(end + 8) != tail.getShort(end + 10)) {
+        return null;
+      }
+      final int entries = tail.getShort(end + 10) & 0xFFFF;
+      final long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+      final long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+      // an archive with data in front of it, like a self extracting one, has shifted offsets
+      if (entries == 0xFFFF
+          || directoryOffset == 0xFFFFFFFFL
+          || directoryOffset + directorySize != tailStart + end) {
+        return null;
+      }
+      final MappedByteBuffer directory =
+          channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize);
+      directory.order(ByteOrder.LITTLE_ENDIAN);
+      return entryNames(directory, entries);
+    }
+  }
+
+  private static int findEndOfCentralDirectory(final ByteBuffer tail) {
+    for (int offset = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; offset >= 0; offset--) {
+      if (tail.getInt(offset) == END_OF_CENTRAL_DIRECTORY
+          && offset + END_OF_CENTRAL_DIRECTORY_SIZE + (tail.getShort(offset + 20) & 0xFFFF)
+              == tail.limit()) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  private static List<String> entryNames(final ByteBuffer directory, final int entries) {
+    final List<String> names = new ArrayList<>(entries);
+    final byte[] name = new byte[MAX_FIELD_LENGTH];
+    int offset = 0;
+    for (int i = 0; i < entries; i++) {
+      if (offset + 46 > directory.limit() || directory.getInt(offset) != CENTRAL_DIRECTORY_ENTRY) {
+        return null;
+      }
+      final int nameLength = directory.getShort(offset + 28) & 0xFFFF;
+      final int extraLength = directory.getShort(offset + 30) & 0xFFFF;
+      final int commentLength = directory.getShort(offset + 32) & 0xFFFF;
+      if (offset + 46 + nameLength > directory.limit()) {
+        return null;
+      }
+      for (int j = 0; j < nameLength; j++) {
+        name[j] = directory.get(offset + 46 + j);
+      }
+      names.add(new String(name, 0, nameLength, StandardCharsets.UTF_8));
+      offset += 46 + nameLength + extraLength + commentLength;
+    }
+    return names;
+  }
+}
@@ -0,0 +1,141 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Index of the classes of a JDK, used to drop references to platform classes right after they have
+ * been extracted, as these classes can never be provided by a dependency.
+ *
+ * <p>The classes are read from the module image of JDK 9 and later, or from the jars of the class
+ * library of JDK 8. The index is kept in the {@link ArtifactClassIndexStore} keyed by the module
+ * image or {@code rt.jar}, so a JDK is indexed once per Gradle user home, and in memory in the
+ * {@link ArtifactClassCache} of the build like the classes of an artifact, so it counts against the
+ * limit of the cache.
+ */
+public final class PlatformClassIndex {
+  private PlatformClassIndex() {}
+
+  /**
+   * Returns the classes of a JDK.
+   *
+   * @param javaHome the installation directory of the JDK, or its jre directory for JDK 8
+   * @param cache in-memory cache of the index
+   * @param store persistent store of the index
+   * @param logger logger
+   * @return the class names, empty if the directory holds no known JDK layout
+   */
+  public static Set<String> classes(
+      final File javaHome,
+      final ArtifactClassCache cache,
+      final ArtifactClassIndexStore store,
+      final Logger logger) {
+    final File modules = new File(javaHome, "lib/modules");
+    final File libraryDir = libraryDir(javaHome);
+    final File keyFile = modules.isFile() ? modules : new File(libraryDir, "rt.jar");
+    if (!keyFile.isFile()) {
+      logger.warn("No JDK class library found in {}, platform classes are not excluded", javaHome);
+      return Collections.emptySet();
+    }
+    final CompletableFuture<ClassNameSet> entry = cache.lookupOrReserve(keyFile);
+    if (entry != null) {
+      return ArtifactClassCache.await(entry);
+    }
+    try {
+      final ClassNameSet classes = index(javaHome, modules, libraryDir, keyFile, store, logger);
+      cache.complete(keyFile, classes);
+      return classes;
+    } catch (final RuntimeException e) {
+      cache.fail(keyFile, e);
+      throw e;
+    }
+  }
+
+  private static ClassNameSet index(
+      final File javaHome,
+      final File modules,
+      final File libraryDir,
+      final File keyFile,
+      final ArtifactClassIndexStore store,
+      final Logger logger) {
+    final Set<String> stored = store.load(keyFile);
+    if (stored != null) {
+      return ClassNameSet.of(stored);
+    }
+    logger.info("Indexing platform classes of {}", javaHome);
+    final Set<String> classes =
+        modules.isFile() ? moduleImageClasses(javaHome) : libraryClasses(libraryDir);
+    store.store(keyFile, classes);
+    return ClassNameSet.of(classes);
+  }
+
+  private static File libraryDir(final File javaHome) {
+    final File jreLibraryDir = new File(javaHome, "jre/lib");
+    return jreLibraryDir.isDirectory() ? jreLibraryDir : new File(javaHome, "lib");
+  }
+
+  private static Set<String> libraryClasses(final File libraryDir) {
+    final File[] jars = libraryDir.listFiles((dir, name) -> name.endsWith(".jar"));
+    final Set<String> classes = new HashSet<>();
+    if (jars != null) {
+      for (final File jar : jars) {
+        classes.addAll(ClassFileCollectorUtil.collectFromFile(jar));
+      }
+    }
+    return classes;
+  }
+
+  /**
+   * Reads the class names from the module image through the jrt file system of the JDK itself, so
+   * that a JDK can be indexed by an older or newer Java runtime than its own.
+   */
+  private static Set<String> moduleImageClasses(final File javaHome) {
+    final Map<String, String> environment =
+        Collections.singletonMap("java.home", javaHome.getAbsolutePath());
+    try (final URLClassLoader loader =
+            new URLClassLoader(
+                new URL[] {new File(javaHome, "lib/jrt-fs.jar").toURI().toURL()},
+                PlatformClassIndex.class.getClassLoader());
+        final FileSystem jrt =
+            FileSystems.newFileSystem(URI.create("jrt:/"), environment, loader)) {
+      final List<Path> modules;
+      try (final Stream<Path> list = Files.list(jrt.getPath("/modules"))) {
+        modules = list.collect(Collectors.toList());
+      }
+      final Set<String> classes = new HashSet<>();
+      for (final Path module : modules) {
+        final List<Path> classFiles = new ArrayList<>();
+        try (final Stream<Path> walk = Files.walk(module)) {
+          walk.filter(path -> path.toString().endsWith(".class")).forEach(classFiles::add);
+        }
+        for (final Path classFile : classFiles) {
+          final String name = module.relativize(classFile).toString();
+          if (!name.endsWith("module-info.class") && !name.endsWith("package-info.class")) {
+            classes.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+          }
+        }
+      }
+      return classes;
+    } catch (final IOException e) {
+      throw new UncheckedIOException("unable to read the module image of " + javaHome, e);
+    }
+  }
+}
@@ -20,38 +20,70 @@ public final class ProjectDependencyResolverUtils {
   /**
    * Determine which of the project dependencies are used.
    *
-   * @param artifactClassMap a map of Files to the classes they contain
+   * @param artifactClassMap a map of artifacts to the classes they contain
    * @param dependencyClasses all classes used directly by the project
    * @return a map of artifact files to used classes in the project
    */
   public static MultiValuedMap<ComponentIdentifier, String> buildUsedArtifacts(
-      final MultiValuedMap<ComponentIdentifier, String> artifactClassMap,
+      final Map<ComponentIdentifier, ClassNameSet> artifactClassMap,
       final Collection<String> dependencyClasses) {
+    final Map<String, List<Map.Entry<ComponentIdentifier, ClassNameSet>>> packageArtifacts =
+        buildPackageIndex(artifactClassMap);
     final MultiValuedMap<ComponentIdentifier, String> map =
         new LinkedHashSetValuedLinkedHashMap<>();
     dependencyClasses.forEach(
-        className ->
-            artifactClassMap.asMap().entrySet().stream()
-                .filter(e -> e.getValue().contains(className))
+        className -> {
+          final String packageName = ClassNameSet.packageName(className);
+          final List<Map.Entry<ComponentIdentifier, ClassNameSet>> candidates =
+              packageArtifacts.get(packageName);
+          if (candidates != null) {
+            final String simpleName = ClassNameSet.simpleName(className);
+            candidates.stream()
+                .filter(candidate -> candidate.getValue().contains(packageName, simpleName))
                 .findFirst()
-                .ifPresent(e -> map.put(e.getKey(), className)));
+                .ifPresent(candidate -> map.put(candidate.getKey(), className));
+          }
+        });
     return map;
   }
 
+  /**
+   * Index the artifacts by the packages they contain. The artifacts of each package keep their
+   * classpath order, so a class contained in several artifacts is attributed to the first of them,
+   * like the compiler would resolve it.
+   *
+   * @param artifactClassMap a map of artifacts to the classes they contain, in classpath order
+   * @return a map of package names to the artifacts containing classes of the package
+   */
+  static Map<String, List<Map.Entry<ComponentIdentifier, ClassNameSet>>> buildPackageIndex(
+      final Map<ComponentIdentifier, ClassNameSet> artifactClassMap) {
+    final Map<String, List<Map.Entry<ComponentIdentifier, ClassNameSet>>> packageArtifacts =
+        new HashMap<>();
+    for (final Map.Entry<ComponentIdentifier, ClassNameSet> artifact :
+        artifactClassMap.entrySet()) {
+      for (final String packageName : artifact.getValue().packages()) {
+        packageArtifacts.computeIfAbsent(packageName, name -> new ArrayList<>(1)).add(artifact);
+      }
+    }
+    return packageArtifacts;
+  }
+
   /**
    * Resolves artifacts from a collection of Configuration providers.
    *
    * @param configurationProviders a collection of Configuration providers
+   * @param transitiveArtifacts the transitive artifacts of the resolved dependencies
    * @return a set of resolved artifacts
    */
   public static Set<ResolvedArtifact> resolveArtifacts(
-      final Collection<Provider<Configuration>> configurationProviders) {
+      final Collection<Provider<Configuration>> configurationProviders,
+      final TransitiveArtifacts transitiveArtifacts) {
     return configurationProviders.stream()
         .map(Provider::get) // Resolution happens here, when actually needed
         .map(Configuration::getResolvedConfiguration)
         .map(ResolvedConfiguration::getFirstLevelModuleDependencies)
         .flatMap(Collection::stream)
-        .map(ResolvedDependency::getAllModuleArtifacts)
+        .map(transitiveArtifacts::of)
         .flatMap(Collection::stream)
         .collect(Collectors.toSet());
   }
@@ -83,9 +115,10 @@ public final class ProjectDependencyResolverUtils {
   }
 
   public static MultiValuedMap<ComponentIdentifier, File> findAllModuleArtifactFiles(
-      final Collection<ResolvedDependency> dependencies) {
+      final Collection<ResolvedDependency> dependencies,
+      final TransitiveArtifacts transitiveArtifacts) {
     return dependencies.stream()
-        .map(ResolvedDependency::getAllModuleArtifacts)
+        .map(transitiveArtifacts::of)
         .flatMap(Collection::stream)
         .collect(
             toMultiValuedMap(a -> a.getId().getComponentIdentifier(), ResolvedArtifact::getFile));
@@ -116,51 +149,117 @@ public final class ProjectDependencyResolverUtils {
     return removeDuplicates(usedParents, parentDependenciesMap, logger);
   }
 
+  /**
+   * Drops every used aggregator whose used dependencies are all used dependencies of an aggregator
+   * sorted after it as well. The dependencies of each aggregator are numbered into bit sets, so a
+   * superset is checked a word at a time, and only the aggregators sharing the least common
+   * dependency of an aggregator are checked.
+   */
   private static Map<ComponentIdentifier, Collection<ComponentIdentifier>> removeDuplicates(
       final Map<ComponentIdentifier, Collection<ComponentIdentifier>> usedParents,
       final Map<ComponentIdentifier, Set<ComponentIdentifier>> parentDependenciesMap,
       final AnalyzeDependenciesLogger logger) {
-    final Map<ComponentIdentifier, Collection<ComponentIdentifier>> parentsSortedByDependencies =
-        usedParents.entrySet().stream()
-            .sorted(
-                Map.Entry.<ComponentIdentifier, Collection<ComponentIdentifier>>comparingByValue(
-                        Comparator.comparingInt(Collection::size))
-                    .thenComparing(
-                        Map.Entry.comparingByKey(
-                            Comparator.<ComponentIdentifier>comparingInt(
-                                    k -> parentDependenciesMap.get(k).size())
-                                .reversed())))
-            .collect(
-                Collectors.toMap(
-                    Map.Entry::getKey, Map.Entry::getValue, (a1, a2) -> a2, LinkedHashMap::new));
-
-    final Set<ComponentIdentifier> parentArtifactAlreadySeen = new HashSet<>();
-
-    parentsSortedByDependencies
-        .entrySet()
-        .removeIf(
-            e -> {
-              parentArtifactAlreadySeen.add(e.getKey());
-              return parentsSortedByDependencies.entrySet().stream()
-                  .anyMatch(
-                      e2 ->
-                          !parentArtifactAlreadySeen.contains(e2.getKey())
-                              && e2.getValue().containsAll(e.getValue()));
-            });
-
-    logger.info("used aggregators", parentsSortedByDependencies.keySet());
-    return parentsSortedByDependencies;
+    final List<Map.Entry<ComponentIdentifier, Collection<ComponentIdentifier>>>
+        parentsSortedByDependencies =
+            usedParents.entrySet().stream()
+                .sorted(
+                    Map.Entry
+                        .<ComponentIdentifier, Collection<ComponentIdentifier>>comparingByValue(
+                            Comparator.comparingInt(Collection::size))
+                        .thenComparing(
+                            Map.Entry.comparingByKey(
+                                Comparator.<ComponentIdentifier>comparingInt(
+                                        k -> parentDependenciesMap.get(k).size())
+                                    .reversed())))
+                .collect(Collectors.toList());
+
+    final ComponentIdentifierIndex index = new ComponentIdentifierIndex();
+    final List<BitSet> dependencies = new ArrayList<>(parentsSortedByDependencies.size());
+    final List<long[]> dependencyWords = new ArrayList<>(parentsSortedByDependencies.size());
+    // the positions of the aggregators using each dependency, in ascending order
+    final List<List<Integer>> parentsByDependency = new ArrayList<>();
+    for (int position = 0; position < parentsSortedByDependencies.size(); position++) {
+      final BitSet parentDependencies =
+          index.ids(parentsSortedByDependencies.get(position).getValue());
+      dependencies.add(parentDependencies);
+      dependencyWords.add(parentDependencies.toLongArray());
+      for (int id = parentDependencies.nextSetBit(0);
+          id >= 0;
+          id = parentDependencies.nextSetBit(id + 1)) {
+        while (parentsByDependency.size() <= id) {
+          parentsByDependency.add(new ArrayList<>());
+        }
+        parentsByDependency.get(id).add(position);
+      }
+    }
+
+    final Map<ComponentIdentifier, Collection<ComponentIdentifier>> usedAggregators =
+        new LinkedHashMap<>();
+    for (int position = 0; position < parentsSortedByDependencies.size(); position++) {
+      if (!coveredByLaterParent(position, dependencies, dependencyWords, parentsByDependency)) {
+        final Map.Entry<ComponentIdentifier, Collection<ComponentIdentifier>> parent =
+            parentsSortedByDependencies.get(position);
+        usedAggregators.put(parent.getKey(), parent.getValue());
+      }
+    }
+
+    logger.info("used aggregators", usedAggregators.keySet());
+    return usedAggregators;
+  }
+
+  private static boolean coveredByLaterParent(
+      final int position,
+      final List<BitSet> dependencies,
+      final List<long[]> dependencyWords,
+      final List<List<Integer>> parentsByDependency) {
+    final BitSet parentDependencies = dependencies.get(position);
+    List<Integer> candidates = null;
+    for (int id = parentDependencies.nextSetBit(0);
+        id >= 0;
+        id = parentDependencies.nextSetBit(id + 1)) {
+      final List<Integer> parents = parentsByDependency.get(id);
+      if (candidates == null || parents.size() < candidates.size()) {
+        candidates = parents;
+      }
+    }
+    if (candidates == null) {
+      // without used dependencies any later aggregator covers this one
+      return position < dependencies.size() - 1;
+    }
+    final long[] words = dependencyWords.get(position);
+    for (final int candidate : candidates) {
+      if (candidate > position && containsAll(dependencyWords.get(candidate), words)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsAll(final long[] set, final long[] subset) {
+    if (subset.length > set.length) {
+      // trailing words of a long array of a bit set are never empty
+      return false;
+    }
+    for (int word = 0; word < subset.length; word++) {
+      if ((subset[word] & ~set[word]) != 0) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
    * Maps POM dependencies to their dependencies.
    *
    * @param configurationProviders a collection of Configuration providers
+   * @param transitiveArtifacts the transitive artifacts of the resolved dependencies
    * @param logger logger
    * @return a map of POM component identifiers to their dependencies
    */
   public static Map<ComponentIdentifier, Set<ComponentIdentifier>> getPomsWithDependenciesMapping(
-      final List<Provider<Configuration>> configurationProviders, final Logger logger) {
+      final List<Provider<Configuration>> configurationProviders,
+      final TransitiveArtifacts transitiveArtifacts,
+      final Logger logger) {
     if (configurationProviders.isEmpty()) {
       return Collections.emptyMap();
     }
@@ -169,53 +268,51 @@ public final class ProjectDependencyResolverUtils {
     final Set<ModuleComponentIdentifier> pomDependencies =
         new PomDependencyDetector(logger).processDependencies(configurationProviders);
 
-    // For each POM dependency, get all of its dependencies
-    final Map<ComponentIdentifier, Set<ComponentIdentifier>> pomsWithDeps = new HashMap<>();
-
-    // Get all first-level dependencies to examine
-    final List<ResolvedDependency> allDependencies =
-        getFirstLevelDependencies(configurationProviders);
+    // Index the first-level dependencies by their coordinates, the first one wins
+    final Map<String, ResolvedDependency> dependenciesByCoordinates = new HashMap<>();
+    for (final ResolvedDependency dependency : getFirstLevelDependencies(configurationProviders)) {
+      final ModuleVersionIdentifier moduleId = dependency.getModule().getId();
+      dependenciesByCoordinates.putIfAbsent(
+          coordinates(moduleId.getGroup(), moduleId.getName(), moduleId.getVersion()), dependency);
+    }
 
-    // For each POM dependency, find its corresponding ResolvedDependency and add its dependencies
+    final Map<ComponentIdentifier, Set<ComponentIdentifier>> pomsWithDeps = new HashMap<>();
     for (final ModuleComponentIdentifier pomId : pomDependencies) {
-      for (final ResolvedDependency dependency : allDependencies) {
-        // Use the module coordinates to match dependencies
-        final ModuleVersionIdentifier moduleId = dependency.getModule().getId();
-
-        if (pomId.getGroup().equals(moduleId.getGroup())
-            && pomId.getModule().equals(moduleId.getName())
-            && pomId.getVersion().equals(moduleId.getVersion())) {
-
-          // Found matching dependency, add all its dependencies
-          final Set<ComponentIdentifier> deps =
-              dependency.getChildren().stream()
-                  .flatMap(child -> child.getAllModuleArtifacts().stream())
-                  .map(artifact -> artifact.getId().getComponentIdentifier())
-                  .collect(Collectors.toSet());
-
-          pomsWithDeps.put(pomId, deps);
-          break;
+      final ResolvedDependency dependency =
+          dependenciesByCoordinates.get(
+              coordinates(pomId.getGroup(), pomId.getModule(), pomId.getVersion()));
+      if (dependency != null) {
+        final Set<ComponentIdentifier> deps = new HashSet<>();
+        for (final ResolvedDependency child : dependency.getChildren()) {
+          deps.addAll(transitiveArtifacts.componentIdentifiers(child));
         }
+        pomsWithDeps.put(pomId, deps);
       }
     }
 
     return pomsWithDeps;
   }
 
+  private static String coordinates(final String group, final String name, final String version) {
+    return group + ':' + name + ':' + version;
+  }
+
   /**
    * Gets aggregators mapping from a collection of Configuration providers.
    *
    * @param configurationProviders a collection of Configuration providers
+   * @param transitiveArtifacts the transitive artifacts of the resolved dependencies
    * @return a map of component identifiers to their dependencies
    */
   public static Map<ComponentIdentifier, Set<ComponentIdentifier>> getAggregatorsMapping(
-      final List<Provider<Configuration>> configurationProviders) {
+      final List<Provider<Configuration>> configurationProviders,
+      final TransitiveArtifacts transitiveArtifacts) {
     if (configurationProviders.isEmpty()) {
       return Collections.emptyMap();
     } else {
       // Resolve providers only when needed
       final Map<ModuleVersionIdentifier, ComponentIdentifier> resolvedArtifacts =
-          resolveArtifacts(configurationProviders).stream()
+          resolveArtifacts(configurationProviders, transitiveArtifacts).stream()
               .collect(
                   Collectors.toMap(
                       d -> d.getModuleVersion().getId(), d -> d.getId().getComponentIdentifier()));
@@ -227,10 +324,7 @@ public final class ProjectDependencyResolverUtils {
           .collect(
               Collectors.toMap(
                   d -> resolvedArtifacts.get(d.getModule().getId()),
-                  d ->
-                      d.getAllModuleArtifacts().stream()
-                          .map(a -> a.getId().getComponentIdentifier())
-                          .collect(Collectors.toSet())));
+                  d -> new HashSet<>(transitiveArtifacts.componentIdentifiers(d))));
     }
   }
 }
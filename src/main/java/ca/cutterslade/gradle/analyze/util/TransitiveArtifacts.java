@@ -0,0 +1,122 @@
+package ca.cutterslade.gradle.analyze.util;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ResolvedDependency;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+
+/**
+ * Collects the artifacts of resolved dependencies and of all their transitive dependencies, like
+ * {@link ResolvedDependency#getAllModuleArtifacts()}, walking each node of the resolved graphs only
+ * once. The set of a node is built from the sets of its children, and shared by every dependency
+ * reaching it, so the shared subtrees of large graphs are not walked again for every first-level
+ * dependency and every caller. The dependencies of a cycle share a single set.
+ *
+ * <p>The returned sets are unmodifiable, and keep the order of {@code getAllModuleArtifacts}: the
+ * artifacts of a dependency first, then those of its children. An instance is meant for a single
+ * analysis, holding the graphs of the configurations it resolves, and is not thread safe.
+ */
+public final class TransitiveArtifacts {
+  private final Map<ResolvedDependency, Set<ResolvedArtifact>> artifacts = new IdentityHashMap<>();
+  private final Map<ResolvedDependency, Set<ComponentIdentifier>> componentIdentifiers =
+      new IdentityHashMap<>();
+  // the walk numbers of the dependencies being walked, which are all on the stack
+  private final Map<ResolvedDependency, Integer> walking = new IdentityHashMap<>();
+  private final Deque<ResolvedDependency> stack = new ArrayDeque<>();
+  private int walked;
+
+  /**
+   * Returns the artifacts of a dependency and of its transitive dependencies.
+   *
+   * @param dependency the dependency
+   * @return an unmodifiable set of the artifacts
+   */
+  public Set<ResolvedArtifact> of(final ResolvedDependency dependency) {
+    if (!artifacts.containsKey(dependency)) {
+      walk(dependency);
+    }
+    return artifacts.get(dependency);
+  }
+
+  /**
+   * Returns the artifacts of dependencies and of their transitive dependencies.
+   *
+   * @param dependencies the dependencies
+   * @return a new set of the artifacts
+   */
+  public Set<ResolvedArtifact> of(final Collection<ResolvedDependency> dependencies) {
+    final Set<ResolvedArtifact> result = new LinkedHashSet<>();
+    dependencies.forEach(dependency -> result.addAll(of(dependency)));
+    return result;
+  }
+
+  /**
+   * Returns the components of the artifacts of a dependency and of its transitive dependencies.
+   *
+   * @param dependency the dependency
+   * @return an unmodifiable set of the component identifiers
+   */
+  public Set<ComponentIdentifier> componentIdentifiers(final ResolvedDependency dependency) {
+    final Set<ComponentIdentifier> result = componentIdentifiers.get(dependency);
+    if (result != null) {
+      return result;
+    }
+    final Set<ComponentIdentifier> identifiers =
+        of(dependency).stream()
+            .map(artifact -> artifact.getId().getComponentIdentifier())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    final Set<ComponentIdentifier> shared = Collections.unmodifiableSet(identifiers);
+    componentIdentifiers.put(dependency, shared);
+    return shared;
+  }
+
+  /**
+   * Walks the dependencies reachable from a dependency not walked yet, depth first, finding the
+   * cycles among them with Tarjan's algorithm.
+   *
+   * @return the lowest walk number of the dependencies on the stack reachable from the dependency
+   */
+  private int walk(final ResolvedDependency dependency) {
+    final int number = walked++;
+    int lowest = number;
+    walking.put(dependency, number);
+    stack.push(dependency);
+    for (final ResolvedDependency child : dependency.getChildren()) {
+      if (!artifacts.containsKey(child)) {
+        final Integer childNumber = walking.get(child);
+        lowest = Math.min(lowest, childNumber == null ? walk(child) : childNumber);
+      }
+    }
+    if (lowest == number) {
+      // the dependency closes a cycle, or has none, and its children have their sets already
+      final Deque<ResolvedDependency> cycle = new ArrayDeque<>();
+      ResolvedDependency member;
+      do {
+        member = stack.pop();
+        walking.remove(member);
+        cycle.addFirst(member);
+      } while (member != dependency);
+      final Set<ResolvedArtifact> result = new LinkedHashSet<>();
+      cycle.forEach(m -> result.addAll(m.getModuleArtifacts()));
+      for (final ResolvedDependency m : cycle) {
+        for (final ResolvedDependency child : m.getChildren()) {
+          final Set<ResolvedArtifact> childArtifacts = artifacts.get(child);
+          if (childArtifacts != null) {
+            result.addAll(childArtifacts);
+          }
+        }
+      }
+      final Set<ResolvedArtifact> shared = Collections.unmodifiableSet(result);
+      cycle.forEach(m -> artifacts.put(m, shared));
+    }
+    return lowest;
+  }
+}
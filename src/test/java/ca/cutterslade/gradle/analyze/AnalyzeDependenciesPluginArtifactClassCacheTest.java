@@ -0,0 +1,275 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.ClassNameSet;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginArtifactClassCacheTest {
+  private static final int THREADS = 8;
+
+  @Test
+  void reservedEntryIsCompletedForWaiters() {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache();
+    final File file = new File("library.jar");
+    final ClassNameSet classes = classes("a.First");
+    assertThat(cache.lookupOrReserve(file)).isNull();
+    final CompletableFuture<ClassNameSet> pending = cache.lookupOrReserve(file);
+    assertThat(pending).isNotDone();
+
+    // when
+    cache.complete(file, classes);
+
+    // then
+    assertThat(ArtifactClassCache.await(pending)).isSameAs(classes);
+    assertThat(ArtifactClassCache.await(cache.lookupOrReserve(file))).isSameAs(classes);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void failureIsPropagatedToWaiters() {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache();
+    final File file = new File("library.jar");
+    final IllegalStateException failure = new IllegalStateException("broken archive");
+    assertThat(cache.lookupOrReserve(file)).isNull();
+    final CompletableFuture<ClassNameSet> pending = cache.lookupOrReserve(file);
+
+    // when
+    cache.fail(file, failure);
+
+    // then
+    assertThatThrownBy(() -> ArtifactClassCache.await(pending)).isSameAs(failure);
+    // the failed entry is removed, so the next caller indexes the file again
+    assertThat(cache.lookupOrReserve(file)).isNull();
+  }
+
+  @Test
+  void failingCompletedEntryKeepsIt() {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache();
+    final File file = new File("library.jar");
+    final ClassNameSet classes = classes("a.First");
+    assertThat(cache.lookupOrReserve(file)).isNull();
+    cache.complete(file, classes);
+
+    // when
+    cache.fail(file, new IllegalStateException("too late"));
+
+    // then
+    assertThat(ArtifactClassCache.await(cache.lookupOrReserve(file))).isSameAs(classes);
+  }
+
+  @Test
+  void leastRecentlyUsedEntryIsEvicted() {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache(3);
+    final File first = new File("first.jar");
+    final File second = new File("second.jar");
+    final File third = new File("third.jar");
+    final File fourth = new File("fourth.jar");
+    add(cache, first, classes("a.First"));
+    add(cache, second, classes("a.Second"));
+    add(cache, third, classes("a.Third"));
+    // using the first entry makes the second the least recently used
+    assertThat(cache.lookupOrReserve(first)).isNotNull();
+
+    // when
+    add(cache, fourth, classes("a.Fourth"));
+
+    // then
+    assertThat(cache.evictions()).isEqualTo(1);
+    assertThat(cache.lookupOrReserve(first)).isNotNull();
+    assertThat(cache.lookupOrReserve(third)).isNotNull();
+    assertThat(cache.lookupOrReserve(fourth)).isNotNull();
+    assertThat(cache.lookupOrReserve(second)).isNull();
+  }
+
+  @Test
+  void entriesAreEvictedUntilWithinBound() {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache(3);
+    add(cache, new File("first.jar"), classes("a.First"));
+    add(cache, new File("second.jar"), classes("a.Second"));
+
+    // when
+    add(cache, new File("large.jar"), classes("b.First", "b.Second", "b.Third"));
+
+    // then
+    assertThat(cache.evictions()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void unboundedCacheDoesNotEvict() {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache();
+
+    // when
+    for (int i = 0; i < 100; i++) {
+      add(cache, new File(i + ".jar"), classes("a.First", "a.Second"));
+    }
+
+    // then
+    assertThat(cache.evictions()).isZero();
+    assertThat(cache.size()).isEqualTo(100);
+  }
+
+  @Test
+  void concurrentLookupsIndexFileOnce() throws Exception {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache();
+    final File file = new File("library.jar");
+    final ClassNameSet classes = classes("a.First");
+    final AtomicInteger reservations = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch looked = new CountDownLatch(THREADS);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      // when
+      final List<Future<ClassNameSet>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  final CompletableFuture<ClassNameSet> entry = cache.lookupOrReserve(file);
+                  looked.countDown();
+                  if (entry != null) {
+                    return ArtifactClassCache.await(entry);
+                  }
+                  reservations.incrementAndGet();
+                  // completing only after every thread looked the file up makes them all wait
+                  looked.await();
+                  cache.complete(file, classes);
+                  return classes;
+                }));
+      }
+      start.countDown();
+
+      // then
+      for (final Future<ClassNameSet> result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS)).isSameAs(classes);
+      }
+      assertThat(reservations).hasValue(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void concurrentFailureIsSeenByAllWaiters() throws Exception {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache();
+    final File file = new File("library.jar");
+    final IllegalStateException failure = new IllegalStateException("broken archive");
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch looked = new CountDownLatch(THREADS);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      // when
+      final List<Future<Throwable>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  final CompletableFuture<ClassNameSet> entry = cache.lookupOrReserve(file);
+                  looked.countDown();
+                  if (entry == null) {
+                    looked.await();
+                    cache.fail(file, failure);
+                    return failure;
+                  }
+                  try {
+                    ArtifactClassCache.await(entry);
+                    return null;
+                  } catch (final IllegalStateException e) {
+                    return e;
+                  }
+                }));
+      }
+      start.countDown();
+
+      // then
+      for (final Future<Throwable> result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS)).isSameAs(failure);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void concurrentIndexingWithEvictionsDoesNotDeadlock() throws Exception {
+    // setup
+    final ArtifactClassCache cache = new ArtifactClassCache(5);
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      files.add(new File(i + ".jar"));
+    }
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      // when
+      final List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        final List<File> order = new ArrayList<>(files);
+        Collections.rotate(order, i * 3);
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int round = 0; round < 50; round++) {
+                    for (final File file : order) {
+                      final CompletableFuture<ClassNameSet> entry = cache.lookupOrReserve(file);
+                      final ClassNameSet classes =
+                          entry == null ? null : ArtifactClassCache.await(entry);
+                      if (classes == null) {
+                        cache.complete(file, classes(file.getName().replace(".jar", ".Type")));
+                      } else {
+                        assertThat(classes)
+                            .containsExactly(file.getName().replace(".jar", ".Type"));
+                      }
+                    }
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+
+      // then
+      for (final Future<?> result : results) {
+        result.get(60, TimeUnit.SECONDS);
+      }
+      assertThat(cache.evictions()).isPositive();
+      assertThat(cache.size()).isLessThanOrEqualTo(5 + THREADS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void add(final ArtifactClassCache cache, final File file, final ClassNameSet set) {
+    assertThat(cache.lookupOrReserve(file)).isNull();
+    cache.complete(file, set);
+  }
+
+  private static ClassNameSet classes(final String... names) {
+    return ClassNameSet.of(Arrays.asList(names));
+  }
+}
@@ -0,0 +1,63 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.util.ArtifactClassIndexStore;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginArtifactClassIndexStoreTest
+    extends AnalyzeDependenciesPluginBaseTest {
+
+  @Test
+  void unusedEntriesAreCleanedUp() throws IOException {
+    // setup
+    final Path storeDirectory = projectDir.resolve("store");
+    final ArtifactClassIndexStore store =
+        new ArtifactClassIndexStore(storeDirectory, projectDir, Logging.getLogger(getClass()));
+    final File unused = artifact("unused.jar");
+    final File used = artifact("used.jar");
+    store.store(unused, Collections.singleton("a.Unused"));
+    store.store(used, Collections.singleton("a.Used"));
+    final long now = System.currentTimeMillis();
+    try (final Stream<Path> entries = Files.walk(storeDirectory)) {
+      entries
+          .filter(Files::isRegularFile)
+          .forEach(
+              entry -> {
+                try {
+                  Files.setLastModifiedTime(
+                      entry, FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(40)));
+                } catch (final IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+    }
+    // reading an entry marks it as used
+    assertThat(store.load(used)).containsExactly("a.Used");
+
+    // when
+    final int deleted = store.cleanUp(now - TimeUnit.DAYS.toMillis(30));
+
+    // then
+    assertThat(deleted).isEqualTo(1);
+    assertThat(store.load(unused)).isNull();
+    assertThat(store.load(used)).containsExactly("a.Used");
+  }
+
+  private File artifact(final String name) throws IOException {
+    final Path artifact = projectDir.resolve(name);
+    Files.write(artifact, name.getBytes(StandardCharsets.UTF_8));
+    return artifact.toFile();
+  }
+}
@@ -0,0 +1,73 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GroovyClass;
+import java.io.IOException;
+import java.util.Collections;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginArtifactTransformTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @Test
+  void projectWithUsedExternalDependency() throws IOException {
+    // setup
+    rootProject()
+        .withMavenRepositories()
+        .indexArtifactsWithTransform()
+        .withMainClass(new GroovyClass("Foo").usesClass("javax.money.Monetary"))
+        .withDependency(
+            new GradleDependency()
+                .setConfiguration("implementation")
+                .setId("javax.money:money-api:1.1"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+  }
+
+  @Test
+  void projectWithUnusedExternalDependency() throws IOException {
+    // setup
+    rootProject()
+        .withMavenRepositories()
+        .indexArtifactsWithTransform()
+        .withMainClass(new GroovyClass("Foo"))
+        .withDependency(
+            new GradleDependency()
+                .setConfiguration("implementation")
+                .setId("javax.money:money-api:1.1"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(VIOLATIONS);
+
+    // then
+    assertBuildResult(
+        result,
+        VIOLATIONS,
+        Collections.emptyList(),
+        Collections.singletonList("javax.money:money-api:1.1"));
+  }
+
+  @Test
+  void projectWithUsedProjectDependency() throws IOException {
+    // setup
+    rootProject()
+        .indexArtifactsWithTransform()
+        .withMainClass(new GroovyClass("Main").usesClass("One"))
+        .withSubProject(subProject("first").withMainClass(new GroovyClass("One")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("first"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+  }
+}
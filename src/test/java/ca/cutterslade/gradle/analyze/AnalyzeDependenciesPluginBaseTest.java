@@ -88,6 +88,15 @@ public abstract class AnalyzeDependenciesPluginBaseTest {
     return buildGradleProject(expectedResult, null, true);
   }
 
+  protected final BuildResult buildGradleProject(
+      final String expectedResult, final String... arguments) {
+    final GradleRunner project = gradleProject(true).withArguments(arguments);
+    if (expectedResult.equals(SUCCESS)) {
+      return project.build();
+    }
+    return project.buildAndFail();
+  }
+
   protected final BuildResult buildGradleProject(
       final String expectedResult,
       final GradleVersion gradleVersion,
@@ -0,0 +1,58 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.util.ClassNameSet;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginClassNameSetTest {
+
+  @Test
+  void unionListsSharedClassesOnce() {
+    // setup
+    final ClassNameSet classes = ClassNameSet.of(Arrays.asList("a.First", "a.Shared", "Default"));
+    final ClassNameSet resources = ClassNameSet.of(Arrays.asList("a.Shared", "b.Second"));
+
+    // when
+    final ClassNameSet union = ClassNameSet.union(Arrays.asList(classes, resources));
+
+    // then
+    assertThat(union)
+        .hasSize(4)
+        .containsExactlyInAnyOrder("a.First", "a.Shared", "Default", "b.Second");
+    assertThat(union.packages()).containsExactlyInAnyOrder("a", "b", "");
+    assertThat(union.contains("b", "Second")).isTrue();
+    assertThat(union.contains("b", "First")).isFalse();
+  }
+
+  @Test
+  void unionOfUnionsCountsSharedClassesOnce() {
+    // setup
+    final ClassNameSet first = ClassNameSet.of(Arrays.asList("a.First", "a.Shared"));
+    final ClassNameSet second = ClassNameSet.of(Arrays.asList("a.Shared", "b.Second"));
+    final ClassNameSet third = ClassNameSet.of(Arrays.asList("b.Second", "c.Third"));
+
+    // when
+    final ClassNameSet union =
+        ClassNameSet.union(
+            Arrays.asList(ClassNameSet.union(Arrays.asList(first, second)), third, first));
+
+    // then
+    assertThat(union.size()).isEqualTo(4);
+    assertThat(union).containsExactlyInAnyOrder("a.First", "a.Shared", "b.Second", "c.Third");
+  }
+
+  @Test
+  void unionOfSingleSetIsTheSet() {
+    // setup
+    final ClassNameSet classes = ClassNameSet.of(Arrays.asList("a.First", "a.Second"));
+
+    // when
+    final ClassNameSet union =
+        ClassNameSet.union(Arrays.asList(classes, ClassNameSet.of(Arrays.asList())));
+
+    // then
+    assertThat(union).isSameAs(classes);
+  }
+}
@@ -55,4 +55,29 @@ class AnalyzeDependenciesPluginClasspathOrderTest extends AnalyzeDependenciesPlu
     assertBuildResult(
         result, VIOLATIONS, Collections.emptyList(), Collections.singletonList("project :first"));
   }
+
+  @Test
+  void projectWithTwoDependenciesOrderedSecondFirstIndexedInParallel() throws IOException {
+    // setup
+    rootProject()
+        .indexArtifactsInParallel()
+        .withMainClass(new GroovyClass("Main").usesClass("One").usesClass("Two"))
+        .withSubProject(subProject("first").withMainClass(new GroovyClass("One")))
+        .withSubProject(
+            subProject("second")
+                .withMainClass(new GroovyClass("One"))
+                .withMainClass(new GroovyClass("Two")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("second"))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("first"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(VIOLATIONS);
+
+    // then
+    assertBuildResult(
+        result, VIOLATIONS, Collections.emptyList(), Collections.singletonList("project :first"));
+  }
 }
@@ -0,0 +1,190 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GroovyClass;
+import ca.cutterslade.gradle.analyze.util.ConstantPoolDependencyAnalyzer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import groovy.lang.GroovyObject;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.maven.shared.dependency.analyzer.ClassesPatterns;
+import org.apache.maven.shared.dependency.analyzer.asm.ASMDependencyAnalyzer;
+import org.assertj.core.api.Assertions;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+class AnalyzeDependenciesPluginConstantPoolScannerTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"issue_288", "issue_299", "issue_400", "issue_527", "issue_528"})
+  void constantPoolScannerFindsSameClassesAsAsmInFixtureProject(final String fixture)
+      throws URISyntaxException, IOException {
+    // setup
+    copyProjectToTestFolder("projects/" + fixture, projectDir);
+
+    // when
+    buildGradleProject(SUCCESS, "classes", "testClasses");
+
+    // then
+    assertSameClassesInClassesDirs();
+  }
+
+  @Test
+  void constantPoolScannerFindsSameClassesAsAsmInDefaultPackage() throws IOException {
+    // setup
+    rootProject()
+        .withMainClass(
+            new GroovyClass("Main")
+                .usesClass("Dependent")
+                .usesClass("java.util.concurrent.ConcurrentHashMap")
+                .usesClassConstant("Constants", "VALUE", "String"))
+        .withMainClass(
+            new GroovyClass("Annotated").withClassAnnotation("MainAnnotation", "Constants.VALUE"))
+        .withMainClass(new GroovyClass("MainAnnotation", true))
+        .withMainClass(new GroovyClass("Dependent"))
+        .withMainClass(
+            new GroovyClass("Constants").addClassConstant("VALUE", "String", "\"value\""))
+        .withTestClass(new GroovyClass("MainTest").usesClass("Main"))
+        .create(projectDir);
+
+    // when
+    buildGradleProject(SUCCESS, "classes", "testClasses");
+
+    // then
+    assertSameClassesInClassesDirs();
+  }
+
+  @Test
+  void constantPoolScannerFindsSameClassesAsAsmForConstantsAndSignatures() throws IOException {
+    // setup
+    final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "pkg/Constants", null, "java/lang/Object", null);
+    writer
+        .visitField(
+            Opcodes.ACC_PUBLIC,
+            "inner",
+            "Lpkg/Outer$Inner;",
+            "Lpkg/Outer<Ljava/lang/String;>.Inner<+Lpkg/Argument;>;",
+            null)
+        .visitEnd();
+    final MethodVisitor method =
+        writer.visitMethod(
+            Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+            "run",
+            "()V",
+            "<T:Ljava/lang/Object;L::Lpkg/Bound;>()V^TT;",
+            null);
+    method.visitCode();
+    // a method type only passed to the bootstrap method of a dynamic constant is not reported
+    method.visitLdcInsn(
+        new ConstantDynamic(
+            "constant",
+            "Ljava/lang/Object;",
+            new Handle(
+                Opcodes.H_INVOKESTATIC,
+                "pkg/Bootstrap",
+                "bootstrap",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;"
+                    + "Ljava/lang/invoke/MethodType;)Ljava/lang/Object;",
+                false),
+            Type.getMethodType("(Lbootstrap/Argument;)V")));
+    method.visitInsn(Opcodes.POP);
+    method.visitLdcInsn(Type.getMethodType("(Lloaded/Argument;)V"));
+    method.visitInsn(Opcodes.POP);
+    method.visitInsn(Opcodes.RETURN);
+    method.visitMaxs(0, 0);
+    method.visitEnd();
+    writer.visitEnd();
+    final Path classesDir = projectDir.resolve("classes");
+    Files.createDirectories(classesDir.resolve("pkg"));
+    Files.write(classesDir.resolve("pkg/Constants.class"), writer.toByteArray());
+
+    // then
+    assertSameClasses(classesDir.toUri().toURL());
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      classes = {
+        ClassReader.class,
+        MultiValuedMap.class,
+        ObjectMapper.class,
+        Assertions.class,
+        GroovyObject.class,
+        ProjectDependencyResolver.class,
+        AnalyzeDependenciesPluginConstantPoolScannerTest.class
+      })
+  void constantPoolScannerFindsSameClassesAsAsmInLibrary(final Class<?> libraryClass)
+      throws IOException {
+    assertSameClasses(libraryClass.getProtectionDomain().getCodeSource().getLocation());
+  }
+
+  @Test
+  void usedAndUnusedDependenciesFoundWithConstantPoolScanner() throws IOException {
+    // setup
+    rootProject()
+        .analyzeClassesWithConstantPoolScanner()
+        .withMainClass(new GroovyClass("Main").usesClass("Dependent"))
+        .withSubProject(subProject("dependent").withMainClass(new GroovyClass("Dependent")))
+        .withSubProject(subProject("independent").withMainClass(new GroovyClass("Independent")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("dependent"))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("independent"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(VIOLATIONS);
+
+    // then
+    assertBuildResult(
+        result,
+        VIOLATIONS,
+        Collections.emptyList(),
+        Collections.singletonList("project :independent"));
+  }
+
+  private void assertSameClassesInClassesDirs() throws IOException {
+    final List<Path> classesDirs;
+    try (final Stream<Path> walk = Files.walk(projectDir)) {
+      classesDirs =
+          walk.filter(Files::isDirectory)
+              .filter(path -> path.getNameCount() >= 3)
+              .filter(
+                  path ->
+                      path.getParent().getParent().endsWith("classes")
+                          && path.getParent().getParent().getParent().endsWith("build"))
+              .collect(Collectors.toList());
+    }
+    assertThat(classesDirs).isNotEmpty();
+    for (final Path classesDir : classesDirs) {
+      assertSameClasses(classesDir.toUri().toURL());
+    }
+  }
+
+  private static void assertSameClasses(final URL url) throws IOException {
+    assertThat(new ConstantPoolDependencyAnalyzer().analyzeUsages(url, new ClassesPatterns()))
+        .as("classes referenced by %s", url)
+        .containsExactlyInAnyOrderElementsOf(
+            new ASMDependencyAnalyzer().analyzeUsages(url, new ClassesPatterns()));
+  }
+}
@@ -0,0 +1,201 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+class AnalyzeDependenciesPluginDependencyChangeTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @BeforeEach
+  void setup() throws IOException, URISyntaxException {
+    copyProjectToTestFolder("projects/dependency_change", projectDir);
+    // version 2.0 no longer contains the class used by the project
+    publishLibrary("1.0", "lib/Helper");
+    publishLibrary("2.0", "lib/Other");
+  }
+
+  @Test
+  void replacementDroppingUsedClassIsReported() {
+    // setup
+    assertBuildResult(buildGradleProject(SUCCESS), SUCCESS);
+
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            SUCCESS,
+            "analyzeDependencyChange",
+            "--replace",
+            "com.example:library",
+            "--with",
+            "2.0");
+
+    // then
+    assertThat(result.task(":compileJava").getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+    assertThat(result.task(":extractClassReferences").getOutcome())
+        .isEqualTo(TaskOutcome.UP_TO_DATE);
+    assertThat(result.task(":analyzeClassesDependencies")).isNull();
+    assertThat(result.getOutput())
+        .contains(
+            String.join(
+                System.lineSeparator(),
+                "Replacing com.example:library with com.example:library:2.0 changes the dependency"
+                    + " analysis of :",
+                "Source set main:",
+                "  newUnusedDeclaredArtifacts",
+                "   - com.example:library:2.0"));
+  }
+
+  @Test
+  void replacementWithSameVersionChangesNothing() {
+    // setup
+    assertBuildResult(buildGradleProject(SUCCESS), SUCCESS);
+
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            SUCCESS,
+            "analyzeDependencyChange",
+            "--replace",
+            "com.example:library",
+            "--with",
+            "com.example:library:1.0");
+
+    // then
+    assertThat(result.getOutput())
+        .contains(
+            "Replacing com.example:library with com.example:library:1.0 does not change the"
+                + " dependency analysis of :");
+  }
+
+  @Test
+  void classReferencesAreExtractedForReplacement() {
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            SUCCESS,
+            "analyzeDependencyChange",
+            "--replace",
+            "com.example:library",
+            "--with",
+            "2.0");
+
+    // then
+    assertThat(result.task(":extractClassReferences").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+    assertThat(result.task(":analyzeClassesDependencies")).isNull();
+    assertThat(result.getOutput())
+        .contains(
+            "Replacing com.example:library with com.example:library:2.0 changes the dependency"
+                + " analysis of :");
+  }
+
+  @Test
+  void replacementRunsAfterClassReferencesAreExtracted() {
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            SUCCESS,
+            "analyzeDependencyChange",
+            "--replace",
+            "com.example:library",
+            "--with",
+            "2.0",
+            "build");
+
+    // then
+    assertThat(result.getOutput())
+        .contains(
+            "Replacing com.example:library with com.example:library:2.0 changes the dependency"
+                + " analysis of :");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"com.example:library:2.0:jar", ":2.0", "com.example::2.0"})
+  void invalidReplacementIsRejected(final String with) {
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            BUILD_FAILURE,
+            "analyzeDependencyChange",
+            "--replace",
+            "com.example:library",
+            "--with",
+            with);
+
+    // then
+    assertThat(result.getOutput())
+        .contains(
+            "Both --replace group:name and --with group:name:version or --with version are"
+                + " needed");
+  }
+
+  @Test
+  void replacementOfMissingModuleIsReported() {
+    // setup
+    assertBuildResult(buildGradleProject(SUCCESS), SUCCESS);
+
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            SUCCESS, "analyzeDependencyChange", "--replace", "com.example:other", "--with", "2.0");
+
+    // then
+    assertThat(result.getOutput())
+        .contains(
+            "No dependency of : on com.example:other found to replace with"
+                + " com.example:other:2.0");
+  }
+
+  private void publishLibrary(final String version, final String className) throws IOException {
+    final Path directory = projectDir.resolve("repo/com/example/library/" + version);
+    Files.createDirectories(directory);
+    try (final OutputStream out =
+            Files.newOutputStream(directory.resolve("library-" + version + ".jar"));
+        final JarOutputStream jar = new JarOutputStream(out)) {
+      jar.putNextEntry(new JarEntry(className + ".class"));
+      jar.write(emptyClass(className));
+      jar.closeEntry();
+    }
+    final String pom =
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <groupId>com.example</groupId>\n"
+            + "  <artifactId>library</artifactId>\n"
+            + "  <version>"
+            + version
+            + "</version>\n"
+            + "</project>\n";
+    Files.write(
+        directory.resolve("library-" + version + ".pom"), pom.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] emptyClass(final String className) {
+    final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+    final MethodVisitor constructor =
+        writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    constructor.visitCode();
+    constructor.visitVarInsn(Opcodes.ALOAD, 0);
+    constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    constructor.visitInsn(Opcodes.RETURN);
+    constructor.visitMaxs(0, 0);
+    constructor.visitEnd();
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+}
@@ -0,0 +1,71 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GradleProject;
+import ca.cutterslade.gradle.analyze.helper.GroovyClass;
+import java.io.IOException;
+import java.util.Collections;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginExtractClassReferencesTest
+    extends AnalyzeDependenciesPluginBaseTest {
+
+  @Test
+  void dependencyChangeDoesNotExtractClassReferencesAgain() throws IOException {
+    // setup
+    projectUsing("\"value\"")
+        .withSubProject(subProject("independent").withMainClass(new GroovyClass("Independent")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("independent"))
+        .create(projectDir);
+    final BuildResult firstResult = buildGradleProject(VIOLATIONS);
+    assertBuildResult(
+        firstResult,
+        VIOLATIONS,
+        Collections.emptyList(),
+        Collections.singletonList("project :independent"));
+
+    // when
+    projectUsing("\"value\"").create(projectDir);
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+    assertThat(result.task(":extractClassReferences").getOutcome())
+        .isEqualTo(TaskOutcome.UP_TO_DATE);
+    assertThat(result.task(":analyzeClassesDependencies").getOutcome())
+        .isEqualTo(TaskOutcome.SUCCESS);
+  }
+
+  @Test
+  void codeChangeWithSameReferencesDoesNotAnalyzeAgain() throws IOException {
+    // setup
+    projectUsing("\"value\"").create(projectDir);
+    assertBuildResult(buildGradleProject(SUCCESS), SUCCESS);
+
+    // when
+    projectUsing("\"other value\"").create(projectDir);
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+    assertThat(result.task(":extractClassReferences").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+    assertThat(result.task(":analyzeClassesDependencies").getOutcome())
+        .isEqualTo(TaskOutcome.UP_TO_DATE);
+  }
+
+  private static GradleProject projectUsing(final String constantValue) {
+    return rootProject()
+        .withMainClass(
+            new GroovyClass("Main")
+                .usesClass("Dependent")
+                .addClassConstant("VALUE", "String", constantValue))
+        .withSubProject(subProject("dependent").withMainClass(new GroovyClass("Dependent")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("dependent"));
+  }
+}
@@ -0,0 +1,61 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GradleProject;
+import ca.cutterslade.gradle.analyze.helper.GroovyClass;
+import java.io.IOException;
+import java.util.Collections;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginIncrementalTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @Test
+  void changedClassIsAnalyzedAgain() throws IOException {
+    // setup
+    projectUsing(new GroovyClass("Main")).create(projectDir);
+    final BuildResult firstResult = buildGradleProject(VIOLATIONS);
+    assertBuildResult(
+        firstResult,
+        VIOLATIONS,
+        Collections.emptyList(),
+        Collections.singletonList("project :dependent"));
+
+    // when
+    projectUsing(new GroovyClass("Main").usesClass("Dependent")).create(projectDir);
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+  }
+
+  @Test
+  void changedClassIsAnalyzedAgainInParallel() throws IOException {
+    // setup
+    projectUsing(new GroovyClass("Main")).analyzeClassesInParallel().create(projectDir);
+    final BuildResult firstResult = buildGradleProject(VIOLATIONS);
+    assertBuildResult(
+        firstResult,
+        VIOLATIONS,
+        Collections.emptyList(),
+        Collections.singletonList("project :dependent"));
+
+    // when
+    projectUsing(new GroovyClass("Main").usesClass("Dependent"))
+        .analyzeClassesInParallel()
+        .create(projectDir);
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+  }
+
+  private static GradleProject projectUsing(final GroovyClass mainClass) {
+    return rootProject()
+        .withMainClass(mainClass)
+        .withMainClass(new GroovyClass("Other"))
+        .withSubProject(subProject("dependent").withMainClass(new GroovyClass("Dependent")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("dependent"));
+  }
+}
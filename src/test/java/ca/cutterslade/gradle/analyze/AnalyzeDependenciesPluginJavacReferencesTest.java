@@ -0,0 +1,195 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.javac.RecordedReferences;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.shared.dependency.analyzer.ClassesPatterns;
+import org.apache.maven.shared.dependency.analyzer.DependencyUsage;
+import org.apache.maven.shared.dependency.analyzer.asm.ASMDependencyAnalyzer;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class AnalyzeDependenciesPluginJavacReferencesTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void recordedReferencesFindSameDependenciesAsClassFiles(final boolean recordJavacReferences)
+      throws URISyntaxException, IOException {
+    // setup
+    copyProjectToTestFolder("projects/javac_references", projectDir);
+
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            VIOLATIONS,
+            "build",
+            "--info",
+            "-P"
+                + AnalyzeDependenciesPlugin.RECORD_JAVAC_REFERENCES_PROPERTY
+                + "="
+                + recordJavacReferences);
+
+    // then
+    assertBuildResult(
+        result, VIOLATIONS, Collections.emptyList(), Collections.singletonList("project :unused"));
+    assertThat(referencesFile().toFile().exists()).isEqualTo(recordJavacReferences);
+    // the groovy class is still analyzed from its class file
+    assertThat(result.getOutput())
+        .contains(
+            recordJavacReferences
+                ? "1 references recorded by javac and 1 misses"
+                : "0 references recorded by javac and 2 misses");
+  }
+
+  @Test
+  void recordedReferencesAreInputOfExtraction() throws URISyntaxException, IOException {
+    // setup
+    copyProjectToTestFolder("projects/javac_references", projectDir);
+    buildGradleProject(
+        SUCCESS,
+        ":app:extractClassReferences",
+        "-P" + AnalyzeDependenciesPlugin.RECORD_JAVAC_REFERENCES_PROPERTY + "=true");
+
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            SUCCESS,
+            ":app:extractClassReferences",
+            "--info",
+            "-P" + AnalyzeDependenciesPlugin.RECORD_JAVAC_REFERENCES_PROPERTY + "=false");
+
+    // then
+    assertThat(result.task(":app:extractClassReferences").getOutcome())
+        .isEqualTo(TaskOutcome.SUCCESS);
+    assertThat(result.getOutput()).contains(", 0 references recorded by javac and ");
+  }
+
+  @Test
+  void javacPluginRecordsReferencedClassesOfTopLevelClasses()
+      throws URISyntaxException, IOException {
+    // setup
+    copyProjectToTestFolder("projects/javac_references", projectDir);
+
+    // when
+    buildGradleProject(
+        SUCCESS,
+        ":app:compileJava",
+        "-P" + AnalyzeDependenciesPlugin.RECORD_JAVAC_REFERENCES_PROPERTY + "=true");
+
+    // then
+    final Map<String, List<String>> references = RecordedReferences.read(referencesFile());
+    assertThat(references).containsOnlyKeys("app.Main");
+    assertThat(references.get("app.Main"))
+        .contains("used.Used", "nested.Outer", "constants.Constants", "java.lang.Runnable");
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "issue_288",
+        "issue_400",
+        "issue_527",
+        "issue_528",
+        "javac_references",
+        "javac_reference_cases"
+      })
+  void recordedReferencesMatchClassFilesInFixtureProject(final String fixture)
+      throws URISyntaxException, IOException {
+    // setup
+    copyProjectToTestFolder("projects/" + fixture, projectDir);
+
+    // when
+    buildGradleProject(
+        SUCCESS,
+        "classes",
+        "testClasses",
+        "-P" + AnalyzeDependenciesPlugin.RECORD_JAVAC_REFERENCES_PROPERTY + "=true");
+
+    // then
+    final List<Path> classesDirs;
+    try (final Stream<Path> walk = Files.walk(projectDir)) {
+      classesDirs =
+          walk.filter(Files::isDirectory)
+              .filter(path -> path.getNameCount() >= 3)
+              .filter(
+                  path ->
+                      path.getParent().endsWith("classes/java")
+                          && path.getParent().getParent().getParent().endsWith("build"))
+              .collect(Collectors.toList());
+    }
+    int compared = 0;
+    for (final Path classesDir : classesDirs) {
+      final String sourceSet = classesDir.getFileName().toString();
+      final Path referencesFile =
+          classesDir
+              .getParent()
+              .getParent()
+              .getParent()
+              .resolve(
+                  "dependency-analyze/compile"
+                      + ("main".equals(sourceSet) ? "" : capitalize(sourceSet))
+                      + "Java.references");
+      if (!Files.exists(referencesFile)) {
+        // a project without the plugin
+        continue;
+      }
+      compared++;
+      final Map<String, Set<String>> expected = new HashMap<>();
+      for (final DependencyUsage usage :
+          new ASMDependencyAnalyzer()
+              .analyzeUsages(classesDir.toUri().toURL(), new ClassesPatterns())) {
+        final Set<String> references =
+            expected.computeIfAbsent(
+                RecordedReferences.topLevelClassName(usage.getUsedBy()), name -> new TreeSet<>());
+        references.add(usage.getDependencyClass());
+      }
+      final Map<String, Set<String>> recorded = new HashMap<>();
+      RecordedReferences.read(referencesFile)
+          .forEach((name, references) -> recorded.put(name, new TreeSet<>(references)));
+      // only the classes of dependencies count: neither the classes of the directory itself, nor
+      // the simple names of the inner classes of generic signatures ASM reports
+      final Predicate<String> dependencyClass =
+          reference ->
+              !isPlatformClass(reference)
+                  && !expected.containsKey(reference)
+                  && reference.indexOf('.') >= 0;
+      expected.values().forEach(references -> references.removeIf(dependencyClass.negate()));
+      recorded.values().forEach(references -> references.removeIf(dependencyClass.negate()));
+      assertThat(recorded).as("references recorded in %s", referencesFile).isEqualTo(expected);
+    }
+    assertThat(compared).isPositive();
+  }
+
+  private static boolean isPlatformClass(final String name) {
+    try {
+      Class.forName(name, false, ClassLoader.getSystemClassLoader().getParent());
+      return true;
+    } catch (final ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static String capitalize(final String name) {
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private Path referencesFile() {
+    return projectDir.resolve("app/build/dependency-analyze/compileJava.references");
+  }
+}
@@ -0,0 +1,90 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.util.ClassFileCollectorUtil;
+import ca.cutterslade.gradle.analyze.util.ConstantPoolScanner;
+import ca.cutterslade.gradle.analyze.util.MappedFiles;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import groovy.lang.GroovyObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.objectweb.asm.ClassReader;
+
+class AnalyzeDependenciesPluginMappedFilesTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @ParameterizedTest
+  @ValueSource(
+      classes = {
+        ClassReader.class,
+        MultiValuedMap.class,
+        ObjectMapper.class,
+        Assertions.class,
+        GroovyObject.class
+      })
+  void mappedCentralDirectoryListsSameClassesAsZipFile(final Class<?> libraryClass)
+      throws IOException, URISyntaxException {
+    // setup
+    final File jar = libraryJar(libraryClass);
+
+    // when
+    final Set<String> classes = ClassFileCollectorUtil.collectFromFile(jar);
+
+    // then
+    try (final ZipFile zipFile = new ZipFile(jar)) {
+      assertThat(classes)
+          .containsExactlyInAnyOrderElementsOf(
+              Collections.list(zipFile.entries()).stream()
+                  .map(ZipEntry::getName)
+                  .filter(name -> name.endsWith(".class") && name.indexOf('-') < 0)
+                  .map(name -> name.substring(0, name.length() - ".class".length()))
+                  .map(name -> name.replace('/', '.'))
+                  .collect(Collectors.toSet()));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(classes = {ObjectMapper.class, Assertions.class, GroovyObject.class})
+  void mappedClassFileFindsSameClassesAsByteArray(final Class<?> libraryClass)
+      throws IOException, URISyntaxException {
+    // setup
+    final Path classFile = projectDir.resolve("Large.class");
+    try (final ZipFile zipFile = new ZipFile(libraryJar(libraryClass))) {
+      final ZipEntry largest =
+          Collections.list(zipFile.entries()).stream()
+              .filter(entry -> entry.getName().endsWith(".class"))
+              .max(Comparator.comparingLong(ZipEntry::getSize))
+              .orElseThrow(IllegalStateException::new);
+      try (final InputStream in = zipFile.getInputStream(largest)) {
+        Files.copy(in, classFile);
+      }
+    }
+
+    // when
+    final Set<String> classes = ConstantPoolScanner.referencedClasses(MappedFiles.read(classFile));
+
+    // then
+    assertThat(classes)
+        .isNotEmpty()
+        .containsExactlyInAnyOrderElementsOf(
+            ConstantPoolScanner.referencedClasses(Files.readAllBytes(classFile)));
+  }
+
+  private static File libraryJar(final Class<?> libraryClass) throws URISyntaxException {
+    return new File(libraryClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+}
@@ -0,0 +1,63 @@
+package ca.cutterslade.gradle.analyze;
+
+import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GradleProject;
+import ca.cutterslade.gradle.analyze.helper.GroovyClass;
+import java.io.IOException;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginParallelTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @Test
+  void projectsSharingDependencyAnalyzedInParallel() throws IOException {
+    // setup
+    rootProject()
+        .withMavenRepositories()
+        .withMainClass(new GroovyClass("Main"))
+        .withSubProject(subProjectUsingMoneyApi("first"))
+        .withSubProject(subProjectUsingMoneyApi("second"))
+        .withSubProject(subProjectUsingMoneyApi("third"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(SUCCESS, "--parallel");
+
+    // then
+    assertBuildResult(result, SUCCESS);
+  }
+
+  @Test
+  void projectsSharingDependencyAnalyzedInParallelWithBoundedCache() throws IOException {
+    // setup
+    rootProject()
+        .withMavenRepositories()
+        .withMainClass(new GroovyClass("Main"))
+        .withSubProject(subProjectUsingMoneyApi("first"))
+        .withSubProject(subProjectUsingMoneyApi("second"))
+        .withSubProject(subProjectUsingMoneyApi("third"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result =
+        buildGradleProject(
+            SUCCESS, "--parallel", "-Pca.cutterslade.analyze.artifactClassCacheLimit=1");
+
+    // then
+    assertBuildResult(result, SUCCESS);
+  }
+
+  private static GradleProject subProjectUsingMoneyApi(final String name) {
+    return subProject(name)
+        .withPlugin("ca.cutterslade.analyze")
+        .withMavenRepositories()
+        .indexArtifactsInParallel()
+        .withMainClass(
+            new GroovyClass(name.substring(0, 1).toUpperCase() + name.substring(1))
+                .usesClass("javax.money.Monetary"))
+        .withDependency(
+            new GradleDependency()
+                .setConfiguration("implementation")
+                .setId("javax.money:money-api:1.1"));
+  }
+}
@@ -0,0 +1,103 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GradleProject;
+import ca.cutterslade.gradle.analyze.helper.GroovyClass;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassCache;
+import ca.cutterslade.gradle.analyze.util.ArtifactClassIndexStore;
+import ca.cutterslade.gradle.analyze.util.PlatformClassIndex;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.gradle.api.logging.Logging;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginPlatformClassesTest extends AnalyzeDependenciesPluginBaseTest {
+
+  @Test
+  void platformClassesAreExcludedFromClassReferences() throws IOException {
+    // setup
+    projectUsingPlatformClasses().excludePlatformClasses().create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(VIOLATIONS);
+
+    // then
+    assertBuildResult(
+        result,
+        VIOLATIONS,
+        Collections.emptyList(),
+        Collections.singletonList("project :independent"));
+    assertThat(classReferences())
+        .contains("Dependent", "Main", "groovy.lang.GroovyObject")
+        .noneMatch(className -> className.startsWith("java."));
+  }
+
+  @Test
+  void platformClassesAreKeptByDefault() throws IOException {
+    // setup
+    projectUsingPlatformClasses().create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(VIOLATIONS);
+
+    // then
+    assertBuildResult(
+        result,
+        VIOLATIONS,
+        Collections.emptyList(),
+        Collections.singletonList("project :independent"));
+    assertThat(classReferences())
+        .contains("Dependent", "Main", "java.util.concurrent.ConcurrentHashMap");
+  }
+
+  @Test
+  void platformClassIndexIsStoredPerJdk() {
+    // setup
+    final File javaHome = new File(System.getProperty("java.home"));
+    final ArtifactClassCache cache = new ArtifactClassCache();
+    final ArtifactClassIndexStore store =
+        new ArtifactClassIndexStore(
+            projectDir.resolve("store"), projectDir, Logging.getLogger(getClass()));
+
+    // when
+    final Set<String> classes =
+        PlatformClassIndex.classes(javaHome, cache, store, Logging.getLogger(getClass()));
+
+    // then
+    assertThat(classes)
+        .contains("java.lang.String", "java.util.concurrent.ConcurrentHashMap")
+        .doesNotContain("org.gradle.api.Project");
+    assertThat(projectDir.resolve("store")).isDirectory();
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(PlatformClassIndex.classes(javaHome, cache, store, Logging.getLogger(getClass())))
+        .isSameAs(classes);
+  }
+
+  private List<String> classReferences() throws IOException {
+    return Files.readAllLines(
+        projectDir.resolve("build/dependency-analyze/extractClassReferences.txt"),
+        StandardCharsets.UTF_8);
+  }
+
+  private static GradleProject projectUsingPlatformClasses() {
+    return rootProject()
+        .withMainClass(
+            new GroovyClass("Main")
+                .usesClass("Dependent")
+                .usesClass("java.util.concurrent.ConcurrentHashMap"))
+        .withSubProject(subProject("dependent").withMainClass(new GroovyClass("Dependent")))
+        .withSubProject(subProject("independent").withMainClass(new GroovyClass("Independent")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("dependent"))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("independent"));
+  }
+}
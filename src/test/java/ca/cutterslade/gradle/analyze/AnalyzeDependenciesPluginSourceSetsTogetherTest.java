@@ -0,0 +1,87 @@
+package ca.cutterslade.gradle.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GradleProject;
+import ca.cutterslade.gradle.analyze.helper.GroovyClass;
+import java.io.IOException;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeDependenciesPluginSourceSetsTogetherTest extends AnalyzeDependenciesPluginBaseTest {
+  private static final String TOGETHER =
+      "-P" + AnalyzeDependenciesPlugin.ANALYZE_SOURCE_SETS_TOGETHER_PROPERTY + "=true";
+
+  @Test
+  void issuesAreReportedPerSourceSet() throws IOException {
+    // setup
+    project()
+        .withDependency(
+            new GradleDependency().setConfiguration("testImplementation").setProject("unused"))
+        .create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(VIOLATIONS, TOGETHER);
+
+    // then
+    assertThat(result.getOutput())
+        .contains(
+            String.join(
+                System.lineSeparator(),
+                "> Source set test:",
+                "  Dependency analysis found issues.",
+                "  unusedDeclaredArtifacts",
+                "   - project :unused"))
+        .doesNotContain("Source set main:");
+    assertThat(result.task(":analyzeSourceSetsDependencies").getOutcome())
+        .isEqualTo(TaskOutcome.FAILED);
+    assertThat(result.task(":analyzeClassesDependencies")).isNull();
+    assertThat(result.task(":analyzeTestClassesDependencies")).isNull();
+    assertThat(result.task(":extractClassReferences").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+    assertThat(result.task(":extractTestClassReferences").getOutcome())
+        .isEqualTo(TaskOutcome.SUCCESS);
+  }
+
+  @Test
+  void sourceSetsAreUpToDateTogether() throws IOException {
+    // setup
+    project().create(projectDir);
+    assertBuildResult(buildGradleProject(SUCCESS, TOGETHER), SUCCESS);
+
+    // when
+    final BuildResult result = buildGradleProject(SUCCESS, TOGETHER);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+    assertThat(result.task(":analyzeSourceSetsDependencies").getOutcome())
+        .isEqualTo(TaskOutcome.UP_TO_DATE);
+  }
+
+  @Test
+  void sourceSetTasksAnalyzeWithoutProperty() throws IOException {
+    // setup
+    project().create(projectDir);
+
+    // when
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // then
+    assertBuildResult(result, SUCCESS);
+    assertThat(result.task(":analyzeSourceSetsDependencies")).isNull();
+    assertThat(result.task(":analyzeClassesDependencies").getOutcome())
+        .isEqualTo(TaskOutcome.SUCCESS);
+    assertThat(result.task(":analyzeTestClassesDependencies").getOutcome())
+        .isEqualTo(TaskOutcome.SUCCESS);
+  }
+
+  private static GradleProject project() {
+    return rootProject()
+        .withMainClass(new GroovyClass("Main").usesClass("Dependent"))
+        .withSubProject(subProject("dependent").withMainClass(new GroovyClass("Dependent")))
+        .withSubProject(subProject("unused").withMainClass(new GroovyClass("Unused")))
+        .withDependency(
+            new GradleDependency().setConfiguration("implementation").setProject("dependent"));
+  }
+}
@@ -1,6 +1,7 @@
 package ca.cutterslade.gradle.analyze;
 
 import ca.cutterslade.gradle.analyze.helper.GradleDependency;
+import ca.cutterslade.gradle.analyze.helper.GradleProject;
 import ca.cutterslade.gradle.analyze.helper.GroovyClass;
 import java.io.IOException;
 import java.util.stream.Stream;
@@ -27,6 +28,31 @@ class AnalyzeDependenciesPluginTest extends AnalyzeDependenciesPluginBaseTest {
     assertBuildSuccess(result);
   }
 
+  @Test
+  void pluginAppliedToSubProjectOnlyResultsInSuccess() throws IOException {
+    // Setup
+    new GradleProject("project", true)
+        .withPlugin("groovy")
+        .withGradleDependency("implementation")
+        .withMainClass(new GroovyClass("Main"))
+        .withSubProject(
+            subProject("dependent")
+                .withPlugin("ca.cutterslade.analyze")
+                .withMainClass(new GroovyClass("Dependent").usesClass("Transient"))
+                .withDependency(
+                    new GradleDependency()
+                        .setConfiguration("implementation")
+                        .setProject("transient")))
+        .withSubProject(subProject("transient").withMainClass(new GroovyClass("Transient")))
+        .create(projectDir);
+
+    // When
+    final BuildResult result = buildGradleProject(SUCCESS);
+
+    // Then
+    assertBuildSuccess(result);
+  }
+
   @ParameterizedTest
   @MethodSource("provideDependencyConfigurationParameters")
   void usedMainDependencyDeclaredWithConfigurationResultsInExpectedResult(
@@ -25,6 +25,11 @@ public class GradleProject {
   private boolean warnUsedUndeclared = false;
   private boolean warnUnusedDeclared = false;
   private boolean logDependencyInformationToFiles = false;
+  private boolean indexArtifactsWithTransform = false;
+  private boolean indexArtifactsInParallel = false;
+  private boolean analyzeClassesInParallel = false;
+  private boolean analyzeClassesWithConstantPoolScanner = false;
+  private boolean excludePlatformClasses = false;
   private final Set<GradleProject> subProjects = new LinkedHashSet<>();
   private final Set<GroovyClass> mainClasses = new LinkedHashSet<>();
   private final Set<GroovyClass> testClasses = new LinkedHashSet<>();
@@ -95,6 +100,31 @@ public class GradleProject {
     return this;
   }
 
+  public GradleProject indexArtifactsWithTransform() {
+    indexArtifactsWithTransform = true;
+    return this;
+  }
+
+  public GradleProject indexArtifactsInParallel() {
+    indexArtifactsInParallel = true;
+    return this;
+  }
+
+  public GradleProject analyzeClassesInParallel() {
+    analyzeClassesInParallel = true;
+    return this;
+  }
+
+  public GradleProject analyzeClassesWithConstantPoolScanner() {
+    analyzeClassesWithConstantPoolScanner = true;
+    return this;
+  }
+
+  public GradleProject excludePlatformClasses() {
+    excludePlatformClasses = true;
+    return this;
+  }
+
   public GradleProject withDependency(final GradleDependency dep) {
     dependencies.add(dep);
     return this;
@@ -225,6 +255,11 @@ public class GradleProject {
     if (warnUsedUndeclared
         || warnUnusedDeclared
         || logDependencyInformationToFiles
+        || indexArtifactsWithTransform
+        || indexArtifactsInParallel
+        || analyzeClassesInParallel
+        || analyzeClassesWithConstantPoolScanner
+        || excludePlatformClasses
         || warnCompileOnly) {
       buildGradle.append("tasks.named('analyzeClassesDependencies').configure {\n");
       if (warnCompileOnly) {
@@ -239,6 +274,21 @@ public class GradleProject {
       if (logDependencyInformationToFiles) {
         buildGradle.append("  logDependencyInformationToFiles = ").append(true).append("\n");
       }
+      if (indexArtifactsWithTransform) {
+        buildGradle.append("  indexArtifactsWithTransform = ").append(true).append("\n");
+      }
+      if (indexArtifactsInParallel) {
+        buildGradle.append("  indexArtifactsInParallel = ").append(true).append("\n");
+      }
+      if (analyzeClassesInParallel) {
+        buildGradle.append("  analyzeClassesInParallel = ").append(true).append("\n");
+      }
+      if (analyzeClassesWithConstantPoolScanner) {
+        buildGradle.append("  analyzeClassesWithConstantPoolScanner = ").append(true).append("\n");
+      }
+      if (excludePlatformClasses) {
+        buildGradle.append("  excludePlatformClasses = ").append(true).append("\n");
+      }
       buildGradle.append("}\n");
     }
 
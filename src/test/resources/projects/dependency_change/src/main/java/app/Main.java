@@ -0,0 +1,7 @@
+package app;
+
+import lib.Helper;
+
+public class Main {
+  private final Helper helper = new Helper();
+}
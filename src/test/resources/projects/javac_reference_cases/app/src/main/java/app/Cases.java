@@ -0,0 +1,69 @@
+package app;
+
+import static lib.Limits.MAX;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lib.Base;
+import lib.Bound;
+import lib.ClassAnnotation;
+import lib.Failure;
+import lib.Holder;
+import lib.Kind;
+import lib.Limits;
+import lib.RuntimeAnnotation;
+import lib.Service;
+import lib.SourceAnnotation;
+
+@ClassAnnotation(value = Holder.class, name = Limits.NAME)
+@SourceAnnotation
+public class Cases<T extends Bound<T> & Comparable<T>> extends Base<T> {
+  private final Holder<String>.Inner<T> inner = null;
+  private final int[] sizes = new int[MAX];
+
+  @RuntimeAnnotation(kind = Kind.FIRST)
+  @Override
+  protected T create() {
+    return null;
+  }
+
+  int size() {
+    return MAX + Limits.MAX;
+  }
+
+  String kind(final Kind kind) {
+    switch (kind) {
+      case FIRST:
+        return "first";
+      default:
+        return "other";
+    }
+  }
+
+  void fail() throws Failure {
+    try {
+      Service.create().run();
+    } catch (final IllegalStateException | UnsupportedOperationException e) {
+      throw new Failure();
+    }
+  }
+
+  Object convert(final Object value) {
+    if (value instanceof Holder) {
+      return ((Holder<?>) value).get();
+    }
+    final Function<Object, Holder<Object>> of = Holder::of;
+    final Supplier<List<Kind>> kinds = ArrayList::new;
+    final Runnable anonymous =
+        new Runnable() {
+          @Override
+          public void run() {
+            Service.create();
+          }
+        };
+    anonymous.run();
+    return of.apply(kinds.get());
+  }
+}
@@ -0,0 +1,5 @@
+package lib;
+
+public abstract class Base<T extends Bound<T>> {
+  protected abstract T create();
+}
@@ -0,0 +1,11 @@
+package lib;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@Retention(RetentionPolicy.CLASS)
+public @interface ClassAnnotation {
+  Class<?> value() default Object.class;
+
+  String name() default "";
+}
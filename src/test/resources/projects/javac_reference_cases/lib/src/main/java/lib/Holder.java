@@ -0,0 +1,13 @@
+package lib;
+
+public class Holder<T> {
+  public class Inner<U> {}
+
+  public static <T> Holder<T> of(final T value) {
+    return new Holder<>();
+  }
+
+  public T get() {
+    return null;
+  }
+}
@@ -0,0 +1,6 @@
+package lib;
+
+public enum Kind {
+  FIRST,
+  SECOND
+}
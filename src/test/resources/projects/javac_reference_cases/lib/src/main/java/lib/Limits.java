@@ -0,0 +1,8 @@
+package lib;
+
+public final class Limits {
+  public static final int MAX = 10;
+  public static final String NAME = "limits";
+
+  private Limits() {}
+}
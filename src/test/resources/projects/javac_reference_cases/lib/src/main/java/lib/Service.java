@@ -0,0 +1,9 @@
+package lib;
+
+public interface Service {
+  void run();
+
+  static Service create() {
+    return () -> {};
+  }
+}
@@ -0,0 +1,9 @@
+package app
+
+import groovyused.GroovyUsed
+
+class GroovyMain {
+    static String value() {
+        new GroovyUsed().value()
+    }
+}
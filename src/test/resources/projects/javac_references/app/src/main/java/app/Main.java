@@ -0,0 +1,14 @@
+package app;
+
+import constants.Constants;
+import nested.Outer;
+import used.Used;
+
+public class Main {
+  public static void main(final String[] args) {
+    System.out.println(Constants.VALUE);
+    System.out.println(new Used().value());
+    final Runnable runnable = () -> new Outer.Inner().run();
+    runnable.run();
+  }
+}
@@ -0,0 +1,7 @@
+package constants;
+
+public final class Constants {
+  public static final String VALUE = "constant";
+
+  private Constants() {}
+}
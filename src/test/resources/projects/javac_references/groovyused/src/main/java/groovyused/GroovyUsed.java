@@ -0,0 +1,7 @@
+package groovyused;
+
+public class GroovyUsed {
+  public String value() {
+    return "groovy";
+  }
+}
@@ -0,0 +1,8 @@
+package nested;
+
+public class Outer {
+  public static class Inner implements Runnable {
+    @Override
+    public void run() {}
+  }
+}
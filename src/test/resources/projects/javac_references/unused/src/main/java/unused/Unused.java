@@ -0,0 +1,3 @@
+package unused;
+
+public class Unused {}
@@ -0,0 +1,7 @@
+package used;
+
+public class Used {
+  public String value() {
+    return "used";
+  }
+}